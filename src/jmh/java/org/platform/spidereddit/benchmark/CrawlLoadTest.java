@@ -0,0 +1,248 @@
+package org.platform.spidereddit.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of full crawls: starts a {@link MockRedditServer}, launches the application in
+ * a child JVM pointed at it, fires concurrent POST /api/crawl requests and reports crawl
+ * throughput, p50/p99 crawl latency and the application's heap use. With slow-rate set, a
+ * share of Reddit's responses stall for slow-ms; with hedge=true the application hedges slow
+ * reads and the hedge rate and latency saved are reported too.
+ * <p>
+ * Options are key=value arguments, see {@link #DEFAULTS}:
+ * <pre>mvn -Pbenchmark -DskipTests test-compile exec:exec@load-test -Dload.args="crawls=40 concurrency=8"</pre>
+ */
+public class CrawlLoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("crawls", "20"),
+            Map.entry("concurrency", "4"),
+            Map.entry("commenters", "100"),
+            Map.entry("users", "5000"),
+            Map.entry("latency-ms", "50"),
+            Map.entry("throttle-rate", "0.01"),
+            Map.entry("rate-limit", "100000"),
+            Map.entry("slow-rate", "0"),
+            Map.entry("slow-ms", "5000"),
+            Map.entry("hedge", "false"),
+            Map.entry("heap", "1g")
+    );
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OkHttpClient httpClient = new OkHttpClient.Builder()
+            .readTimeout(10, TimeUnit.MINUTES)
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            for (String option : arg.trim().split("\\s+")) {
+                if (option.isEmpty()) continue;
+                String[] keyValue = option.split("=", 2);
+                if (keyValue.length != 2 || !DEFAULTS.containsKey(keyValue[0])) {
+                    throw new IllegalArgumentException("Unknown option " + option + ", expected one of " + DEFAULTS.keySet());
+                }
+                options.put(keyValue[0], keyValue[1]);
+            }
+        }
+        new CrawlLoadTest().run(options);
+    }
+
+    private void run(Map<String, String> options) throws Exception {
+        int crawls = Integer.parseInt(options.get("crawls"));
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+
+        try (MockRedditServer reddit = new MockRedditServer(
+                Integer.parseInt(options.get("commenters")),
+                Integer.parseInt(options.get("users")),
+                Long.parseLong(options.get("latency-ms")),
+                Double.parseDouble(options.get("throttle-rate")),
+                Integer.parseInt(options.get("rate-limit")),
+                Double.parseDouble(options.get("slow-rate")),
+                Long.parseLong(options.get("slow-ms")))) {
+            reddit.start(0);
+
+            int port = freePort();
+            String app = "http://localhost:" + port;
+            boolean hedge = Boolean.parseBoolean(options.get("hedge"));
+            Process process = launch(reddit, port, options.get("heap"), hedge);
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            try {
+                awaitHealthy(app, process);
+                System.out.printf("Application up on port %d, Reddit stand-in at %s%n", port, reddit.baseUrl());
+
+                AtomicLong peakHeap = new AtomicLong();
+                sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(heapUsed(app), Math::max),
+                        0, 250, TimeUnit.MILLISECONDS);
+
+                ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+                List<Future<Long>> results = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int i = 0; i < crawls; i++) {
+                    String url = "https://www.reddit.com/r/loadtest/comments/post" + i + "/synthetic_thread/";
+                    results.add(clients.submit(() -> crawl(app, url)));
+                }
+
+                List<Long> latencies = new ArrayList<>();
+                int failed = 0;
+                for (Future<Long> result : results) {
+                    long latency = result.get();
+                    if (latency < 0) {
+                        failed++;
+                    } else {
+                        latencies.add(latency);
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                clients.shutdown();
+                sampler.shutdown();
+                Collections.sort(latencies);
+
+                System.out.printf("Crawls:     %d ok, %d failed in %.1f s, concurrency %d%n",
+                        latencies.size(), failed, seconds, concurrency);
+                System.out.printf("Throughput: %.2f crawls/s, %.1f users/s%n",
+                        latencies.size() / seconds, reddit.userRequests() / 2 / seconds);
+                System.out.printf("Latency:    p50 %d ms, p99 %d ms, max %d ms%n",
+                        percentile(latencies, 50), percentile(latencies, 99), percentile(latencies, 100));
+                System.out.printf("Heap:       peak %d MB, after %d MB%n",
+                        peakHeap.get() >> 20, heapUsed(app) >> 20);
+                System.out.printf("Reddit:     %d requests, %d throttled, %d slowed%n",
+                        reddit.requests(), reddit.throttled(), reddit.slowed());
+                if (hedge) {
+                    double won = metric(app, "spidereddit.reddit.hedges?tag=result:won", "COUNT");
+                    double lost = metric(app, "spidereddit.reddit.hedges?tag=result:lost", "COUNT");
+                    double saved = metric(app, "spidereddit.reddit.hedge.saved", "TOTAL_TIME");
+                    System.out.printf("Hedging:    %.0f hedges (%.1f%% of reads), %.0f won, %.1f s saved%n",
+                            won + lost, 100 * metric(app, "spidereddit.reddit.hedge.rate", "VALUE"), won, saved);
+                }
+            } finally {
+                sampler.shutdownNow();
+                process.destroy();
+                process.waitFor(30, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    // Same classpath as this driver, which includes the application and its dependencies
+    private Process launch(MockRedditServer reddit, int port, String heap, boolean hedge) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(
+                System.getProperty("java.home") + "/bin/java",
+                "-Xmx" + heap,
+                "-cp", System.getProperty("java.class.path"),
+                "org.platform.spidereddit.SpideredditApplication",
+                "--server.port=" + port,
+                "--management.endpoints.web.exposure.include=health,metrics",
+                "--spring.devtools.restart.enabled=false",
+                "--spidereddit.reddit.hedge.enabled=" + hedge);
+        builder.environment().put("REDDIT_API_BASE_URL", reddit.baseUrl());
+        builder.environment().put("REDDIT_TOKEN_URL", reddit.tokenUrl());
+        builder.environment().put("REDDIT_CLIENT_ID", "load-test");
+        builder.environment().put("REDDIT_CLIENT_SECRET", "load-test");
+        builder.environment().put("REDDIT_USERNAME", "load-test");
+        builder.environment().put("REDDIT_PASSWORD", "load-test");
+        builder.environment().put("REDDIT_USER_AGENT", "spidereddit-load-test");
+
+        File log = new File("target/load-test-app.log");
+        log.getParentFile().mkdirs();
+        return builder.redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+    }
+
+    private void awaitHealthy(String app, Process process) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(90);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited, see target/load-test-app.log");
+            }
+            try (Response response = httpClient.newCall(new Request.Builder().url(app + "/actuator/health").build()).execute()) {
+                if (response.isSuccessful()) return;
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Application did not start within 90 s, see target/load-test-app.log");
+    }
+
+    // Returns the crawl's latency in milliseconds, or -1 if it failed
+    private long crawl(String app, String url) {
+        long start = System.nanoTime();
+        try {
+            String body = objectMapper.writeValueAsString(Map.of("url", url));
+            Request request = new Request.Builder()
+                    .url(app + "/api/crawl")
+                    .post(RequestBody.create(body, JSON))
+                    .build();
+            try (Response response = httpClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    System.err.printf("Crawl of %s failed: %d%n", url, response.code());
+                    return -1;
+                }
+                response.body().bytes();
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (IOException e) {
+            System.err.printf("Crawl of %s failed: %s%n", url, e.getMessage());
+            return -1;
+        }
+    }
+
+    private long heapUsed(String app) {
+        return (long) metric(app, "jvm.memory.used?tag=area:heap", "VALUE");
+    }
+
+    // One measurement of an actuator metric, or 0 if the metric wasn't recorded yet
+    private double metric(String app, String metric, String statistic) {
+        Request request = new Request.Builder()
+                .url(app + "/actuator/metrics/" + metric)
+                .build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) return 0;
+            for (JsonNode measurement : objectMapper.readTree(response.body().string()).path("measurements")) {
+                if (measurement.path("statistic").asText().equals(statistic)) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
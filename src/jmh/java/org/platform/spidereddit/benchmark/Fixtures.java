@@ -0,0 +1,72 @@
+package org.platform.spidereddit.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.platform.spidereddit.text.WordGraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Recorded Reddit responses and graphs shared by the benchmarks.
+ */
+public final class Fixtures {
+
+    public static final String USER_COMMENTS = "fixtures/user-comments.json";
+    public static final String USER_SUBMITTED = "fixtures/user-submitted.json";
+    public static final String POST_COMMENTS = "fixtures/post-comments.json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    /**
+     * Reads a fixture from the benchmark classpath.
+     */
+    public static String read(String name) {
+        try (InputStream stream = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("Missing fixture: " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds the graph exported to wordgraph.json in the project root, a real crawl.
+     */
+    public static WordGraph wordGraphExport() {
+        try {
+            JsonNode export = objectMapper.readTree(Files.readString(Path.of("wordgraph.json")));
+            WordGraph graph = new WordGraph();
+            for (JsonNode edge : export.get("edges")) {
+                String[] pair = {edge.get("source").asText(), edge.get("target").asText()};
+                for (int i = 0; i < edge.get("weight").asInt(); i++) {
+                    graph.recordCoOccurrences(pair);
+                }
+            }
+            return graph;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds a graph from the given number of synthetic users.
+     */
+    public static WordGraph syntheticWordGraph(int users) {
+        SyntheticCorpus corpus = new SyntheticCorpus(50_000, 1.07, users);
+        WordGraph graph = new WordGraph();
+        for (int i = 0; i < users; i++) {
+            graph.recordCoOccurrences(corpus.user(3_000));
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,289 @@
+package org.platform.spidereddit.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Reddit endpoints the crawler calls: the OAuth token endpoint,
+ * /comments/{id}.json and the /user/{name}/comments and /submitted listings.
+ * Content is synthetic and deterministic per post and user. Every response is delayed
+ * by the configured latency and carries Reddit's X-Ratelimit headers for a fixed window;
+ * requests over the window's budget, and a configurable share of the others, get a 429.
+ * Another share of the API responses can stall for slowMillis, like Reddit's occasional
+ * stuck listing.
+ */
+public class MockRedditServer implements Closeable {
+
+    private static final Pattern POST = Pattern.compile("^/comments/([^/.]+)\\.json");
+    private static final Pattern USER = Pattern.compile("^/user/([^/]+)/(comments|submitted)");
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final int commentersPerPost;
+    private final int userPool;
+    private final long latencyMillis;
+    private final double throttleRate;
+    private final int requestsPerWindow;
+    private final double slowRate;
+    private final long slowMillis;
+
+    private final MockWebServer server = new MockWebServer();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SyntheticCorpus corpus = new SyntheticCorpus(20_000, 1.07, 0);
+
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicInteger windowUsed = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger userRequests = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger slowed = new AtomicInteger();
+
+    /**
+     * @param commentersPerPost comments in every generated thread
+     * @param userPool          number of distinct authors comments are drawn from, so threads share users
+     * @param latencyMillis     mean delay before the response headers, jittered by +-50%
+     * @param throttleRate      share of requests answered with a 429 regardless of the budget
+     * @param requestsPerWindow budget per ten minute window, like Reddit's OAuth limit
+     */
+    public MockRedditServer(int commentersPerPost, int userPool, long latencyMillis, double throttleRate,
+                            int requestsPerWindow) {
+        this(commentersPerPost, userPool, latencyMillis, throttleRate, requestsPerWindow, 0, 0);
+    }
+
+    /**
+     * @param slowRate   share of API responses delayed by slowMillis instead of the latency
+     * @param slowMillis delay before the headers of a slow response
+     */
+    public MockRedditServer(int commentersPerPost, int userPool, long latencyMillis, double throttleRate,
+                            int requestsPerWindow, double slowRate, long slowMillis) {
+        this.slowRate = slowRate;
+        this.slowMillis = slowMillis;
+        this.commentersPerPost = commentersPerPost;
+        this.userPool = userPool;
+        this.latencyMillis = latencyMillis;
+        this.throttleRate = throttleRate;
+        this.requestsPerWindow = requestsPerWindow;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    public void start(int port) throws IOException {
+        server.start(port);
+    }
+
+    /**
+     * Value for REDDIT_API_BASE_URL.
+     */
+    public String baseUrl() {
+        String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    /**
+     * Value for REDDIT_TOKEN_URL.
+     */
+    public String tokenUrl() {
+        return baseUrl() + "/api/v1/access_token";
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    /**
+     * Requests for user listings; a crawled user makes two.
+     */
+    public int userRequests() {
+        return userRequests.get();
+    }
+
+    public int throttled() {
+        return throttled.get();
+    }
+
+    public int slowed() {
+        return slowed.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        requests.incrementAndGet();
+        String path = request.getPath() == null ? "" : request.getPath();
+
+        MockResponse response;
+        if (path.startsWith("/api/v1/access_token")) {
+            // Token requests have their own budget on Reddit
+            return delayed(json(objectMapper.createObjectNode()
+                    .put("access_token", "mock-token")
+                    .put("token_type", "bearer")
+                    .put("expires_in", 86400)));
+        }
+
+        long resetSeconds = nextRequestInWindow();
+        int used = windowUsed.get();
+        if (used > requestsPerWindow || ThreadLocalRandom.current().nextDouble() < throttleRate) {
+            throttled.incrementAndGet();
+            response = new MockResponse().setResponseCode(429).setBody("{\"message\": \"Too Many Requests\", \"error\": 429}");
+        } else {
+            Matcher post = POST.matcher(path);
+            Matcher user = USER.matcher(path);
+            if (post.find()) {
+                response = json(commentTree(post.group(1)));
+            } else if (user.find()) {
+                userRequests.incrementAndGet();
+                response = json(user.group(2).equals("comments")
+                        ? userComments(user.group(1))
+                        : userSubmissions(user.group(1)));
+            } else {
+                response = new MockResponse().setResponseCode(404).setBody("{\"message\": \"Not Found\", \"error\": 404}");
+            }
+        }
+
+        response.setHeader("X-Ratelimit-Used", Math.min(used, requestsPerWindow))
+                .setHeader("X-Ratelimit-Remaining", Math.max(requestsPerWindow - used, 0))
+                .setHeader("X-Ratelimit-Reset", resetSeconds);
+        if (ThreadLocalRandom.current().nextDouble() < slowRate) {
+            slowed.incrementAndGet();
+            return response.setHeadersDelay(slowMillis, TimeUnit.MILLISECONDS);
+        }
+        return delayed(response);
+    }
+
+    // Counts the request in the current window and returns the seconds until the window resets
+    private long nextRequestInWindow() {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_MILLIS && windowStart.compareAndSet(start, now)) {
+            windowUsed.set(0);
+            start = now;
+        }
+        windowUsed.incrementAndGet();
+        return Math.max(0, (start + WINDOW_MILLIS - now) / 1000);
+    }
+
+    private MockResponse delayed(MockResponse response) {
+        if (latencyMillis > 0) {
+            long jitter = ThreadLocalRandom.current().nextLong(-latencyMillis / 2, latencyMillis / 2 + 1);
+            response.setHeadersDelay(latencyMillis + jitter, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private MockResponse json(Object body) {
+        try {
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json; charset=UTF-8")
+                    .setBody(objectMapper.writeValueAsString(body));
+        } catch (IOException e) {
+            return new MockResponse().setResponseCode(500);
+        }
+    }
+
+    // [post listing, comment listing], with replies nested up to five levels deep
+    private ArrayNode commentTree(String postId) {
+        SplittableRandom random = new SplittableRandom(postId.hashCode());
+        SyntheticCorpus text = corpus.withSeed(postId.hashCode());
+
+        ArrayNode root = objectMapper.createArrayNode();
+        ObjectNode post = objectMapper.createObjectNode()
+                .put("id", postId)
+                .put("name", "t3_" + postId)
+                .put("author", author(random))
+                .put("title", text.text(12))
+                .put("selftext", text.text(60))
+                .put("num_comments", commentersPerPost);
+        root.add(listing(objectMapper.createArrayNode().add(thing("t3", post))));
+
+        ArrayNode topLevel = objectMapper.createArrayNode();
+        ArrayNode[] levels = new ArrayNode[6];
+        levels[0] = topLevel;
+        int depth = 0;
+        for (int i = 0; i < commentersPerPost; i++) {
+            ObjectNode comment = objectMapper.createObjectNode()
+                    .put("id", postId + "c" + i)
+                    .put("author", author(random))
+                    .put("body", text.text(10 + random.nextInt(40)))
+                    .put("depth", depth);
+            ArrayNode replies = objectMapper.createArrayNode();
+            comment.set("replies", listing(replies));
+            levels[depth].add(thing("t1", comment));
+
+            // Either reply to this comment, stay at this level, or climb back up
+            int step = random.nextInt(3);
+            if (step == 0 && depth < levels.length - 1) {
+                levels[++depth] = replies;
+            } else if (step == 1 && depth > 0) {
+                depth = random.nextInt(depth);
+            }
+        }
+        root.add(listing(topLevel));
+        return root;
+    }
+
+    private ObjectNode userComments(String username) {
+        SyntheticCorpus text = corpus.withSeed(username.hashCode());
+        ArrayNode children = objectMapper.createArrayNode();
+        for (int i = 0; i < 25; i++) {
+            children.add(thing("t1", objectMapper.createObjectNode()
+                    .put("id", username + "c" + i)
+                    .put("author", username)
+                    .put("body", text.text(40))));
+        }
+        return listing(children);
+    }
+
+    private ObjectNode userSubmissions(String username) {
+        SyntheticCorpus text = corpus.withSeed(~username.hashCode());
+        ArrayNode children = objectMapper.createArrayNode();
+        for (int i = 0; i < 25; i++) {
+            children.add(thing("t3", objectMapper.createObjectNode()
+                    .put("id", username + "p" + i)
+                    .put("author", username)
+                    .put("title", text.text(10))
+                    .put("selftext", text.text(30))));
+        }
+        return listing(children);
+    }
+
+    // Roughly one comment in fifty is deleted, like on Reddit
+    private String author(SplittableRandom random) {
+        return random.nextInt(50) == 0 ? "[deleted]" : "user_" + random.nextInt(userPool);
+    }
+
+    private ObjectNode thing(String kind, ObjectNode data) {
+        ObjectNode thing = objectMapper.createObjectNode().put("kind", kind);
+        thing.set("data", data);
+        return thing;
+    }
+
+    private ObjectNode listing(ArrayNode children) {
+        ObjectNode data = objectMapper.createObjectNode();
+        data.putNull("after");
+        data.set("children", children);
+        ObjectNode listing = objectMapper.createObjectNode().put("kind", "Listing");
+        listing.set("data", data);
+        return listing;
+    }
+}
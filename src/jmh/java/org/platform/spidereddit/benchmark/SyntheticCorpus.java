@@ -0,0 +1,121 @@
+package org.platform.spidereddit.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of Reddit-like word streams. Word frequencies follow a
+ * Zipf distribution, like natural language, so a few words co-occur with almost
+ * everything and the long tail stays sparse, which is the shape the word graph sees.
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "sa", "te", "vo", "zi", "ba", "de", "fu", "go", "hi", "ja", "pe"
+    };
+
+    private final String[] vocabulary;
+    private final double[] cumulative;
+    private final SplittableRandom random;
+
+    public SyntheticCorpus(int vocabularySize, double exponent, long seed) {
+        this.vocabulary = new String[vocabularySize];
+        this.cumulative = new double[vocabularySize];
+        this.random = new SplittableRandom(seed);
+
+        double sum = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            vocabulary[rank] = spell(rank);
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    private SyntheticCorpus(String[] vocabulary, double[] cumulative, long seed) {
+        this.vocabulary = vocabulary;
+        this.cumulative = cumulative;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Returns a corpus over the same vocabulary with its own random stream. Instances are
+     * not thread safe, and this is much cheaper than building the distribution again.
+     */
+    public SyntheticCorpus withSeed(long seed) {
+        return new SyntheticCorpus(vocabulary, cumulative, seed);
+    }
+
+    /**
+     * Draws a single word.
+     */
+    public String word() {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return vocabulary[low];
+    }
+
+    /**
+     * Draws a space separated text of the given number of words.
+     */
+    public String text(int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) text.append(' ');
+            text.append(word());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Draws the history of one user and returns what UserHistoryFetcher records for it:
+     * the distinct words by descending frequency, at most 500 of them.
+     */
+    public String[] user(int words) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (int i = 0; i < words; i++) {
+            frequencies.merge(word(), 1, Integer::sum);
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(frequencies.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        return entries.stream()
+                .limit(500)
+                .map(Map.Entry::getKey)
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Draws the histories of several users.
+     */
+    public String[][] users(int count, int words) {
+        String[][] users = new String[count][];
+        for (int i = 0; i < count; i++) {
+            users[i] = user(words);
+        }
+        return users;
+    }
+
+    // Pronounceable and unique: the rank written in base 16 with a syllable per digit
+    private static String spell(int rank) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append(SYLLABLES[rank & 15]);
+            rank >>>= 4;
+        } while (rank > 0);
+        return word.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.platform.spidereddit.benchmark.SyntheticCorpus;
+import org.platform.spidereddit.text.NearDuplicateDetector;
+import org.platform.spidereddit.utility.POSFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing and POS tagging the comments of one crawl, 200 users of 25 comments, with and
+ * without skipping near-duplicates. duplicateRate of the comments are copies of 50 pastas, the
+ * popular ones much more often, and a third of the copies are edited slightly, like quotes
+ * with a word of their own. The gap between the two benchmarks is the tagging CPU the detector
+ * saves, net of its own MinHash cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DuplicateCommentBenchmark {
+
+    private static final int USERS = 200;
+    private static final int COMMENTS_PER_USER = 25;
+    private static final int PASTAS = 50;
+
+    @Param({"0", "0.1", "0.3"})
+    public double duplicateRate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private POSFilter filter;
+    private List<JsonNode> listings;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        filter = new POSFilter(Set.of("NOUN", "ADJ", "VERB"));
+        SyntheticCorpus corpus = new SyntheticCorpus(20_000, 1.07, 7);
+        SplittableRandom random = new SplittableRandom(7);
+
+        List<String> pastas = new ArrayList<>();
+        for (int i = 0; i < PASTAS; i++) {
+            pastas.add(corpus.text(30 + random.nextInt(60)));
+        }
+
+        listings = new ArrayList<>();
+        for (int user = 0; user < USERS; user++) {
+            ArrayNode children = objectMapper.createArrayNode();
+            for (int i = 0; i < COMMENTS_PER_USER; i++) {
+                String body;
+                if (random.nextDouble() < duplicateRate) {
+                    // Squaring skews the picks towards the first, most popular pastas
+                    double u = random.nextDouble();
+                    body = pastas.get((int) (u * u * PASTAS));
+                    if (random.nextInt(3) == 0) {
+                        body = body + " " + corpus.word();
+                    }
+                } else {
+                    body = corpus.text(10 + random.nextInt(40));
+                }
+                ObjectNode data = objectMapper.createObjectNode().put("body", body);
+                children.add(objectMapper.createObjectNode().set("data", data));
+            }
+            ObjectNode listing = objectMapper.createObjectNode();
+            listing.set("data", objectMapper.createObjectNode().set("children", children));
+            listings.add(listing);
+        }
+    }
+
+    @Benchmark
+    public int tagEveryComment() {
+        return crawl(NearDuplicateDetector.NONE);
+    }
+
+    @Benchmark
+    public int skipNearDuplicates() {
+        // A fresh detector per crawl, as the service creates them
+        return crawl(new NearDuplicateDetector(0.8, 20_000, false));
+    }
+
+    private int crawl(NearDuplicateDetector duplicates) {
+        int words = 0;
+        for (JsonNode listing : listings) {
+            List<String> tokens = UserHistoryFetcher.commentWords(listing, duplicates, new ArrayList<>());
+            words += filter.filter(String.join(" ", tokens)).size();
+        }
+        return words;
+    }
+}
@@ -0,0 +1,65 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.platform.spidereddit.benchmark.Fixtures;
+import org.platform.spidereddit.text.WordGraph;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of recorded Reddit responses, from the raw body to what the crawl keeps,
+ * and the whole per-user step from the two listings to recorded co-occurrences.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListingParsingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String userComments;
+    private String userSubmitted;
+    private String postComments;
+    private UserHistoryFetcher fetcher;
+
+    @Setup(Level.Trial)
+    public void load() {
+        userComments = Fixtures.read(Fixtures.USER_COMMENTS);
+        userSubmitted = Fixtures.read(Fixtures.USER_SUBMITTED);
+        postComments = Fixtures.read(Fixtures.POST_COMMENTS);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        fetcher = new UserHistoryFetcher("user_042", new WordGraph(), "token");
+    }
+
+    @Benchmark
+    public List<String> userCommentWords() throws IOException {
+        return UserHistoryFetcher.commentWords(objectMapper.readTree(userComments));
+    }
+
+    @Benchmark
+    public List<String> userPostWords() throws IOException {
+        return UserHistoryFetcher.postWords(objectMapper.readTree(userSubmitted));
+    }
+
+    @Benchmark
+    public Set<String> postCommenters() throws IOException {
+        return RedditClient.commenters(objectMapper.readTree(postComments));
+    }
+
+    @Benchmark
+    public void processUser() throws IOException {
+        fetcher.recordWords(
+                UserHistoryFetcher.commentWords(objectMapper.readTree(userComments)),
+                UserHistoryFetcher.postWords(objectMapper.readTree(userSubmitted)));
+    }
+}
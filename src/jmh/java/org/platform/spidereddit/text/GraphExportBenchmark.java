@@ -0,0 +1,76 @@
+package org.platform.spidereddit.text;
+
+import org.openjdk.jmh.annotations.*;
+import org.platform.spidereddit.benchmark.Fixtures;
+import org.platform.spidereddit.model.CompactGraph;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path cost at several graph sizes: "export" is the graph in wordgraph.json, the
+ * numbers are synthetic graphs built from that many users.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphExportBenchmark {
+
+    private static final int MIN_WEIGHT = 3;
+
+    @Param({"export", "1000", "10000"})
+    public String graph;
+
+    private WordGraph wordGraph;
+    private GraphSnapshot snapshot;
+    private String hub;
+    private int hubId;
+
+    @Setup(Level.Trial)
+    public void build() {
+        wordGraph = "export".equals(graph)
+                ? Fixtures.wordGraphExport()
+                : Fixtures.syntheticWordGraph(Integer.parseInt(graph));
+        snapshot = wordGraph.snapshot();
+        // The word with the highest weighted degree has the largest neighborhood
+        for (int u = 0; u < snapshot.nodeCount(); u++) {
+            if (hub == null || snapshot.strengths[u] > snapshot.strengths[hubId]) {
+                hub = snapshot.word(u);
+                hubId = u;
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> exportData() {
+        return snapshot.exportData(MIN_WEIGHT);
+    }
+
+    @Benchmark
+    public Map<String, Object> exportTopNodes() {
+        return snapshot.exportTopNodes(50, MIN_WEIGHT);
+    }
+
+    @Benchmark
+    public Map<String, Object> exportBackbone() {
+        return snapshot.exportBackbone(0.05, MIN_WEIGHT);
+    }
+
+    @Benchmark
+    public Map<String, Object> exportEgo() {
+        return snapshot.exportEgo(hub, 2, 100, MIN_WEIGHT);
+    }
+
+    @Benchmark
+    public CompactGraph exportCompactData() {
+        return snapshot.exportCompactData(MIN_WEIGHT);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return wordGraph.toJson(MIN_WEIGHT);
+    }
+}
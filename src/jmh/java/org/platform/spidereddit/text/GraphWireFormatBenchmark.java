@@ -0,0 +1,57 @@
+package org.platform.spidereddit.text;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.openjdk.jmh.annotations.*;
+import org.platform.spidereddit.benchmark.Fixtures;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export plus serialization of the full graph in each wire format, the work behind one
+ * GET /api/graph. Payload sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphWireFormatBenchmark {
+
+    private static final int MIN_WEIGHT = 3;
+
+    @Param({"export", "1000"})
+    public String graph;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new CBORMapper();
+    private GraphSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void build() throws JsonProcessingException {
+        WordGraph wordGraph = "export".equals(graph)
+                ? Fixtures.wordGraphExport()
+                : Fixtures.syntheticWordGraph(Integer.parseInt(graph));
+        snapshot = wordGraph.snapshot();
+
+        System.out.printf("%nPayload bytes: json=%d, compact json=%d, compact cbor=%d%n",
+                json(), compactJson(), compactCbor());
+    }
+
+    @Benchmark
+    public int json() throws JsonProcessingException {
+        return json.writeValueAsBytes(snapshot.exportData(MIN_WEIGHT)).length;
+    }
+
+    @Benchmark
+    public int compactJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(snapshot.exportCompactData(MIN_WEIGHT)).length;
+    }
+
+    @Benchmark
+    public int compactCbor() throws JsonProcessingException {
+        return cbor.writeValueAsBytes(snapshot.exportCompactData(MIN_WEIGHT)).length;
+    }
+}
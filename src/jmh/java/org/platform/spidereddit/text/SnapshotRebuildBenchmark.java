@@ -0,0 +1,44 @@
+package org.platform.spidereddit.text;
+
+import org.openjdk.jmh.annotations.*;
+import org.platform.spidereddit.benchmark.Fixtures;
+import org.platform.spidereddit.benchmark.SyntheticCorpus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing a snapshot after a user was recorded: only the rows of the
+ * words that user touched are read from the live index, the rest are copied.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotRebuildBenchmark {
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    private WordGraph wordGraph;
+    private SyntheticCorpus corpus;
+
+    @Setup(Level.Trial)
+    public void build() {
+        wordGraph = Fixtures.syntheticWordGraph(users);
+        wordGraph.snapshot();
+        corpus = new SyntheticCorpus(50_000, 1.07, 7);
+    }
+
+    // Invocation level setup is fine here: a rebuild takes milliseconds, not nanoseconds
+    @Setup(Level.Invocation)
+    public void recordUser() {
+        wordGraph.recordCoOccurrences(corpus.user(3_000));
+    }
+
+    @Benchmark
+    public GraphSnapshot snapshot() {
+        return wordGraph.snapshot();
+    }
+}
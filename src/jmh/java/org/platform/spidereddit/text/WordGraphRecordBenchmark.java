@@ -0,0 +1,62 @@
+package org.platform.spidereddit.text;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.platform.spidereddit.benchmark.SyntheticCorpus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestion throughput: one operation records the top words of one user, as a finished
+ * UserHistoryFetcher does. The contended variant has crawl threads writing to one graph.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WordGraphRecordBenchmark {
+
+    private static final int USERS = 512;
+
+    private String[][] users;
+    private WordGraph graph;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        users = new SyntheticCorpus(50_000, 1.07, 42).users(USERS, 3_000);
+    }
+
+    // A fresh graph per iteration keeps its size, and so the cost per user, comparable across iterations
+    @Setup(Level.Iteration)
+    public void reset() {
+        graph = new WordGraph();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void start(ThreadParams threads) {
+            next = threads.getThreadIndex() * (USERS / threads.getThreadCount());
+        }
+
+        String[] nextUser(String[][] users) {
+            return users[next++ % users.length];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordCoOccurrences(Cursor cursor) {
+        graph.recordCoOccurrences(cursor.nextUser(users));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordCoOccurrencesContended(Cursor cursor) {
+        graph.recordCoOccurrences(cursor.nextUser(users));
+    }
+}
@@ -0,0 +1,50 @@
+package org.platform.spidereddit.utility;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.platform.spidereddit.benchmark.Fixtures;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * POS tagging of one user's comment history, and loading the tagger model, which
+ * UserHistoryFetcher currently does once per user.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class POSFilterBenchmark {
+
+    private static final Set<String> TAGS = Set.of("NOUN", "ADJ", "VERB");
+
+    private POSFilter filter;
+    private String comments;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        filter = new POSFilter(TAGS);
+        JsonNode listing = new ObjectMapper().readTree(Fixtures.read(Fixtures.USER_COMMENTS));
+        comments = StreamSupport.stream(listing.path("data").path("children").spliterator(), false)
+                .map(child -> child.path("data").path("body").asText(""))
+                .collect(Collectors.joining(" "));
+    }
+
+    @Benchmark
+    public List<String> filter() {
+        return filter.filter(comments);
+    }
+
+    @Benchmark
+    public POSFilter loadModel() {
+        return new POSFilter(TAGS);
+    }
+}
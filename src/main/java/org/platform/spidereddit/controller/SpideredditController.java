@@ -1,29 +1,337 @@
 package org.platform.spidereddit.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.platform.spidereddit.crawler.CrawlAbandonedException;
+import org.platform.spidereddit.crawler.CrawlScheduler;
+import org.platform.spidereddit.metrics.CrawlTrace;
+import org.platform.spidereddit.model.BatchCrawlRequest;
+import org.platform.spidereddit.model.ExportOptions;
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.SpiderCrawlRequest;
+import org.platform.spidereddit.reddit.RedditUnavailableException;
 import org.platform.spidereddit.service.SpideredditService;
+import org.platform.spidereddit.text.GraphSnapshot;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-@CrossOrigin(origins = "http://localhost:3000")
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = SpideredditController.CRAWL_ID_HEADER)
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class SpideredditController {
 
+    static final String CRAWL_ID_HEADER = "X-Crawl-Id";
+
+    // Bounds the listings and posts one request can fan out to
+    private static final int MAX_BATCH_URLS = 50;
+    private static final int MAX_LISTING_LIMIT = 100;
+    private static final int MAX_SPIDER_DEPTH = 4;
+    private static final int MAX_SPIDER_FAN_OUT = 100;
+    private static final int MAX_SPIDER_BUDGET = 1_000_000;
+
+    // Bounds the neighborhood one ego request can ask for
+    private static final int MAX_EGO_HOPS = 3;
+    private static final int MAX_EGO_NODES = 1000;
+
+    // Asks for the compact format as JSON; application/cbor asks for it as CBOR
+    static final String COMPACT_JSON_VALUE = "application/vnd.spidereddit.compact+json";
+    private static final MediaType COMPACT_JSON = MediaType.parseMediaType(COMPACT_JSON_VALUE);
+
+    // Long enough for a crawl of a large thread, whose users wait for fetch slots shared with other crawls
+    private static final long STREAM_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
     private final SpideredditService spideredditService;
 
     @PostMapping("/crawl")
-    public ResponseEntity<Map<String, Object>> crawl(@RequestBody Map<String, String> request) throws IOException {
+    public ResponseEntity<Object> crawl(@RequestBody Map<String, String> request,
+                                        ExportOptions options,
+                                        @RequestHeader(value = "Accept", required = false) String accept)
+            throws IOException {
         String url = request.get("url");
-        if (url == null || url.isBlank()) {
+        if (url == null || url.isBlank() || !isValid(options)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        negotiateFormat(accept, options);
+        CrawlTrace trace = spideredditService.startTrace(url);
+        Object graphData = spideredditService.crawlFromRedditUrl(url, options, trace);
+        return ResponseEntity.ok()
+                .header(CRAWL_ID_HEADER, trace.id())
+                .body(graphData);
+    }
+
+    /**
+     * Crawls post URLs and subreddit listing URLs (/r/{sub}/top?t=week) into the graph as one
+     * crawl, fetching each commenter once however many of the posts they commented on.
+     */
+    @PostMapping("/crawl/batch")
+    public ResponseEntity<Object> crawlBatch(@RequestBody BatchCrawlRequest batch,
+                                             ExportOptions options,
+                                             @RequestHeader(value = "Accept", required = false) String accept)
+            throws IOException {
+        if (batch.getUrls() == null || batch.getUrls().isEmpty() || batch.getUrls().size() > MAX_BATCH_URLS
+                || batch.getUrls().stream().anyMatch(url -> url == null || url.isBlank())
+                || batch.getLimit() < 1 || batch.getLimit() > MAX_LISTING_LIMIT || !isValid(options)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        negotiateFormat(accept, options);
+        CrawlTrace trace = spideredditService.startTrace(String.join(" ", batch.getUrls()));
+        Object graphData = spideredditService.crawlBatch(batch, options, trace);
+        return ResponseEntity.ok()
+                .header(CRAWL_ID_HEADER, trace.id())
+                .body(graphData);
+    }
+
+    /**
+     * Spiders out from a post through its commenters and the other posts they commented on.
+     */
+    @PostMapping("/crawl/spider")
+    public ResponseEntity<Object> crawlSpider(@RequestBody SpiderCrawlRequest spider,
+                                              ExportOptions options,
+                                              @RequestHeader(value = "Accept", required = false) String accept)
+            throws IOException {
+        if (spider.getUrl() == null || spider.getUrl().isBlank()
+                || spider.getDepth() < 1 || spider.getDepth() > MAX_SPIDER_DEPTH
+                || spider.getFanOut() < 1 || spider.getFanOut() > MAX_SPIDER_FAN_OUT
+                || spider.getBudget() < 1 || spider.getBudget() > MAX_SPIDER_BUDGET || !isValid(options)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        negotiateFormat(accept, options);
+        CrawlTrace trace = spideredditService.startTrace(spider.getUrl());
+        Object graphData = spideredditService.crawlSpider(spider, options, trace);
+        return ResponseEntity.ok()
+                .header(CRAWL_ID_HEADER, trace.id())
+                .body(graphData);
+    }
+
+    /**
+     * Streams the crawl as server-sent events: the graph so far, then deltas as users are merged.
+     * A GET, so browsers can consume it with EventSource.
+     */
+    @GetMapping(path = "/crawl/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> crawlStream(@RequestParam String url,
+                                                  @RequestParam(defaultValue = "3") int minWeight) {
+        if (url.isBlank() || minWeight < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        CrawlTrace trace = spideredditService.startTrace(url);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        spideredditService.streamCrawl(url, minWeight, trace, emitter);
+        return ResponseEntity.ok()
+                .header(CRAWL_ID_HEADER, trace.id())
+                .body(emitter);
+    }
+
+    @GetMapping("/crawl/{id}/trace")
+    public ResponseEntity<Map<String, Object>> trace(@PathVariable String id,
+                                                     @RequestParam(defaultValue = "json") String format) {
+        if (!format.equals("json") && !format.equals("chrome")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return spideredditService.getTrace(id)
+                .map(trace -> format.equals("chrome") ? trace.toChromeTrace() : trace.toMap())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Where a running crawl's users stand in the shared scheduler: fetched, in flight, queued,
+     * its rank for the next free slot and an ETA. Not found once all its users are fetched.
+     */
+    @GetMapping("/crawl/{id}/progress")
+    public ResponseEntity<CrawlScheduler.Progress> progress(@PathVariable String id) {
+        return spideredditService.getProgress(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/crawl/queue")
+    public List<CrawlScheduler.Progress> queue() {
+        return spideredditService.getQueue();
+    }
+
+    @GetMapping("/graph")
+    public ResponseEntity<Object> graph(ExportOptions options,
+                                        @RequestHeader(value = "Accept", required = false) String accept,
+                                        @RequestHeader(value = "If-None-Match", required = false)
+                                        String ifNoneMatch) {
+        if (!isValid(options)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        negotiateFormat(accept, options);
+        return conditional(ifNoneMatch, options.getFormat(), negotiateMediaType(accept),
+                snapshot -> spideredditService.exportGraph(snapshot, options));
+    }
+
+    @GetMapping("/graph/communities")
+    public ResponseEntity<Map<String, Object>> communities(@RequestParam(defaultValue = "3") int minWeight,
+                                                           @RequestHeader(value = "If-None-Match", required = false)
+                                                           String ifNoneMatch) {
+        if (minWeight < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return conditional(ifNoneMatch, "json", MediaType.APPLICATION_JSON, snapshot -> spideredditService.exportCommunities(snapshot, minWeight));
+    }
+
+    @GetMapping("/graph/neighbors/{word}")
+    public ResponseEntity<List<GraphEdge>> neighbors(@PathVariable String word,
+                                                     @RequestParam(defaultValue = "10") int k,
+                                                     @RequestHeader(value = "If-None-Match", required = false)
+                                                     String ifNoneMatch) {
+        if (k <= 0) {
             return ResponseEntity.badRequest().build();
         }
 
-        Map<String, Object> graphData = spideredditService.crawlFromRedditUrl(url);
-        return ResponseEntity.ok(graphData);
+        return conditional(ifNoneMatch, "json", MediaType.APPLICATION_JSON, snapshot -> spideredditService.getNeighbors(snapshot, word, k));
+    }
+
+    /**
+     * The neighborhood of one word, so clients can show it without downloading the whole graph.
+     */
+    @GetMapping("/graph/ego")
+    public ResponseEntity<Map<String, Object>> ego(@RequestParam String word,
+                                                   @RequestParam(defaultValue = "2") int hops,
+                                                   @RequestParam(defaultValue = "100") int maxNodes,
+                                                   @RequestParam(defaultValue = "3") int minWeight,
+                                                   @RequestHeader(value = "If-None-Match", required = false)
+                                                   String ifNoneMatch) {
+        if (word.isBlank() || hops < 1 || hops > MAX_EGO_HOPS || maxNodes < 1 || maxNodes > MAX_EGO_NODES
+                || minWeight < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return conditional(ifNoneMatch, "json", MediaType.APPLICATION_JSON,
+                snapshot -> spideredditService.exportEgo(snapshot, word, hops, maxNodes, minWeight));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> handleBadRequest() {
+        return ResponseEntity.badRequest().build();
+    }
+
+    /**
+     * Crawls fail fast while the Reddit circuit breaker is open; clients are told when to retry.
+     */
+    @ExceptionHandler(RedditUnavailableException.class)
+    public ResponseEntity<Void> handleRedditUnavailable(RedditUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+
+    /**
+     * A crawl that didn't finish in time is failed rather than answered with a partial graph.
+     */
+    @ExceptionHandler(CrawlAbandonedException.class)
+    public ResponseEntity<Void> handleCrawlAbandoned() {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+    }
+
+    /**
+     * Switches to the compact format when the Accept header asks for it. Spring then writes
+     * it as JSON or CBOR, whichever the header prefers.
+     */
+    static void negotiateFormat(String accept, ExportOptions options) {
+        if (accept != null && (accept.contains(MediaType.APPLICATION_CBOR_VALUE) || accept.contains(COMPACT_JSON_VALUE))) {
+            options.setFormat("compact");
+        }
+    }
+
+    /**
+     * The type Spring writes the graph as for this Accept header: CBOR when it is the most
+     * preferred type asked for by name, otherwise JSON, which also serves the compact JSON type.
+     */
+    static MediaType negotiateMediaType(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        // By quality, then specificity, as Spring's content negotiation does
+        MimeTypeUtils.sortBySpecificity(types);
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                return MediaType.APPLICATION_CBOR;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON) || type.isCompatibleWith(COMPACT_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Answers 304 without exporting anything when the client already has this version of the
+     * graph in this format and media type, otherwise exports the snapshot tagged with its version.
+     */
+    private <T> ResponseEntity<T> conditional(String ifNoneMatch, String format, MediaType mediaType,
+                                              Function<GraphSnapshot, T> export) {
+        GraphSnapshot snapshot = spideredditService.latestGraph();
+        String etag = etagOf(snapshot.version(), format, mediaType);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy("Accept")
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy("Accept")
+                .body(export.apply(snapshot));
+    }
+
+    // Weak: the graph is the same whether or not the body was gzipped on the way out
+    static String etagOf(long version, String format, MediaType mediaType) {
+        return "W/\"" + version + "-" + format.toLowerCase(Locale.ENGLISH) + "-" + mediaType.getSubtype() + "\"";
+    }
+
+    /**
+     * If-None-Match uses weak comparison, so W/"7-json-json" and "7-json-json" both match.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.substring(2);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(tag -> tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque));
+    }
+
+    private boolean isValid(ExportOptions options) {
+        return options.getMinWeight() >= 1 && options.getTopN() >= 1
+                && options.getAlpha() > 0 && options.getAlpha() <= 1;
     }
 }
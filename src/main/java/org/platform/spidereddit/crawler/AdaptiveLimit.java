@@ -0,0 +1,112 @@
+package org.platform.spidereddit.crawler;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD limit on the users fetched at once, learned from every Reddit call. Installed as an
+ * interceptor on the API client, it times each call. While calls succeed near the baseline
+ * latency and the limit is in use, it grows by about one user per limit's worth of calls
+ * (additive increase). A 429, or a call slower than LATENCY_TOLERANCE times the baseline,
+ * cuts it by BACKOFF_RATIO (multiplicative decrease). Cuts happen at most once per baseline
+ * latency, so one burst of slow calls counts as one signal.
+ */
+public class AdaptiveLimit implements Interceptor {
+
+    private static final double BACKOFF_RATIO = 0.75;
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    // Weight of each call in the baseline latency, so it follows roughly the last 50 calls
+    private static final double BASELINE_SMOOTHING = 0.02;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private double limit;
+    private double baselineNanos;
+    private long lastDecrease;
+    private int callsInFlight;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, LongSupplier clock) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: " + minLimit + " <= "
+                    + initialLimit + " <= " + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.clock = clock;
+        this.lastDecrease = clock.getAsLong();
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        synchronized (this) {
+            callsInFlight++;
+        }
+        long start = clock.getAsLong();
+        try {
+            Response response = chain.proceed(chain.request());
+            if (response.code() == 429) {
+                onDrop();
+            } else if (response.isSuccessful()) {
+                onSample(clock.getAsLong() - start);
+            }
+            return response;
+        } finally {
+            synchronized (this) {
+                callsInFlight--;
+            }
+        }
+    }
+
+    synchronized void onSample(long latencyNanos) {
+        onSample(latencyNanos, callsInFlight);
+    }
+
+    synchronized void onSample(long latencyNanos, int inFlight) {
+        if (baselineNanos == 0) {
+            baselineNanos = latencyNanos;
+        }
+        boolean spike = latencyNanos > LATENCY_TOLERANCE * baselineNanos;
+        // Spikes count too, so a lasting shift in Reddit's latency becomes the new baseline
+        baselineNanos += BASELINE_SMOOTHING * (latencyNanos - baselineNanos);
+
+        if (spike) {
+            decrease();
+        } else if (inFlight >= limit / 2) {
+            // An unused limit proves nothing about Reddit, so it only grows while at least half in use
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    synchronized void onDrop() {
+        decrease();
+    }
+
+    private void decrease() {
+        long now = clock.getAsLong();
+        if (now - lastDecrease < baselineNanos) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+}
@@ -0,0 +1,86 @@
+package org.platform.spidereddit.crawler;
+
+import org.platform.spidereddit.utility.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings, safe for concurrent use without locks. It remembers
+ * which users and posts a crawl has visited in about 10 bits per entry at a 1% false positive
+ * rate, instead of a hash set holding every name. A false positive makes the crawl skip an
+ * entry it never visited; an entry that was added is always reported.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashes;
+
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        if (expectedEntries < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + expectedEntries + ", "
+                    + falsePositiveRate);
+        }
+        // Optimal size m = -n ln p / (ln 2)^2 and hash count k = m / n ln 2
+        long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+    }
+
+    /**
+     * Adds the entry and returns whether it was new. Returns false for an entry added before,
+     * and for a false positive. Two threads racing to add the same new entry may both get true.
+     */
+    public boolean add(String entry) {
+        long hash = hash(entry);
+        long step = Hashing.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            // Double hashing: h1 + i * h2 gives k well spread indexes from one hash of the entry
+            added |= set(Long.remainderUnsigned(hash + i * step, bitCount));
+        }
+        return added;
+    }
+
+    public boolean mightContain(String entry) {
+        long hash = hash(entry);
+        long step = Hashing.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long index = Long.remainderUnsigned(hash + i * step, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long sizeInBytes() {
+        return bits.length() * 8L;
+    }
+
+    private boolean set(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, finished with a mixer so nearby names spread apart
+    private static long hash(String entry) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < entry.length(); i++) {
+            hash ^= entry.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return Hashing.mix(hash);
+    }
+}
@@ -0,0 +1,13 @@
+package org.platform.spidereddit.crawler;
+
+/**
+ * Thrown when a crawl's remaining users were dropped: it ran past its timeout, its thread was
+ * interrupted, or its scheduler closed. The graph holds only part of the crawl, so it must not
+ * count as done.
+ */
+public class CrawlAbandonedException extends RuntimeException {
+
+    public CrawlAbandonedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,149 @@
+package org.platform.spidereddit.crawler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs at most one crawl per post at a time and remembers finished crawls for a TTL.
+ * A request for a post that is being crawled waits for that crawl instead of starting
+ * another, and a request within the TTL of a finished crawl doesn't crawl at all.
+ * A failed crawl is not remembered, so the next request retries it.
+ */
+public class CrawlCoalescer {
+
+    public enum Outcome {
+        /** This request ran the crawl. */
+        MISS,
+        /** This request waited for a crawl another request started. */
+        COALESCED,
+        /** The post was crawled within the TTL. */
+        HIT
+    }
+
+    /**
+     * What a finished crawl leaves behind: its id and how many Reddit calls it made.
+     */
+    public record Crawl(String crawlId, int requests, long finishedAt) {
+    }
+
+    public record Result(Crawl crawl, Outcome outcome) {
+    }
+
+    @FunctionalInterface
+    public interface CrawlTask {
+        Crawl run() throws IOException;
+    }
+
+    private final Map<String, CompletableFuture<Crawl>> crawls = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    public CrawlCoalescer(long ttlNanos) {
+        this(ttlNanos, System::nanoTime);
+    }
+
+    // Constructor for testing with a controllable clock
+    public CrawlCoalescer(long ttlNanos, LongSupplier clock) {
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Runs the crawl for a post unless it is already running or finished within the TTL.
+     */
+    public Result crawl(String postId, CrawlTask task) throws IOException {
+        while (true) {
+            CompletableFuture<Crawl> mine = new CompletableFuture<>();
+            CompletableFuture<Crawl> existing = crawls.putIfAbsent(postId, mine);
+
+            if (existing == null) {
+                try {
+                    Crawl crawl = task.run();
+                    mine.complete(crawl);
+                    return new Result(crawl, Outcome.MISS);
+                } catch (IOException | RuntimeException e) {
+                    crawls.remove(postId, mine);
+                    mine.completeExceptionally(e);
+                    throw e;
+                }
+            }
+
+            if (!existing.isDone()) {
+                return new Result(await(existing), Outcome.COALESCED);
+            }
+
+            if (!existing.isCompletedExceptionally()) {
+                Crawl crawl = existing.join();
+                if (isFresh(crawl)) {
+                    return new Result(crawl, Outcome.HIT);
+                }
+            }
+            // Expired: drop it and race to start a new crawl
+            crawls.remove(postId, existing);
+        }
+    }
+
+    /**
+     * Claims a post for a caller that crawls it itself, as one post of a batch. Returns the
+     * future to complete when the crawl ends, or to pass to {@link #fail}; or null if the post
+     * is being crawled or was crawled within the TTL, in which case the caller skips it.
+     */
+    public CompletableFuture<Crawl> claim(String postId) {
+        while (true) {
+            CompletableFuture<Crawl> mine = new CompletableFuture<>();
+            CompletableFuture<Crawl> existing = crawls.putIfAbsent(postId, mine);
+            if (existing == null) {
+                return mine;
+            }
+            if (!existing.isDone()) {
+                return null;
+            }
+            if (!existing.isCompletedExceptionally() && isFresh(existing.join())) {
+                return null;
+            }
+            crawls.remove(postId, existing);
+        }
+    }
+
+    /**
+     * Releases a claimed post whose crawl failed, so the next request retries it.
+     */
+    public void fail(String postId, CompletableFuture<Crawl> claim, Throwable cause) {
+        crawls.remove(postId, claim);
+        claim.completeExceptionally(cause);
+    }
+
+    /**
+     * Forgets finished crawls older than the TTL.
+     */
+    public void evictExpired() {
+        crawls.values().removeIf(future -> future.isDone()
+                && (future.isCompletedExceptionally() || !isFresh(future.join())));
+    }
+
+    public int size() {
+        return crawls.size();
+    }
+
+    private boolean isFresh(Crawl crawl) {
+        return now() - crawl.finishedAt() < ttlNanos;
+    }
+
+    private Crawl await(CompletableFuture<Crawl> crawl) throws IOException {
+        try {
+            return crawl.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+}
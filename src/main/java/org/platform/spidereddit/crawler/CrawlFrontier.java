@@ -0,0 +1,133 @@
+package org.platform.spidereddit.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Breadth-first spider crawl from a seed post. Hop one crawls the commenters of the seed post.
+ * Each later hop crawls the commenters of the posts the previous hop's users commented on,
+ * up to fanOut posts per user. The crawl stops after depth hops or once budget users have
+ * been crawled. Visited users and posts are kept in Bloom filters sized for the budget, so
+ * memory stays bounded for hundreds of thousands of users.
+ */
+public class CrawlFrontier {
+
+    // Each false positive skips one user or post that was never visited
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // Posts whose commenters are discovered at the same time
+    private static final int DISCOVERY_PARALLELISM = 8;
+
+    public record Limits(int depth, int fanOut, int budget) {
+    }
+
+    public record Result(int hops, int users, int posts) {
+    }
+
+    @FunctionalInterface
+    public interface PostDiscovery {
+        Set<String> commenters(String postId) throws IOException;
+    }
+
+    /**
+     * Crawls one hop of users, passing the ids of the posts each one commented on to postsCommented.
+     */
+    @FunctionalInterface
+    public interface UserCrawl {
+        void crawl(Set<String> usernames, Consumer<List<String>> postsCommented);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(CrawlFrontier.class);
+    private final Limits limits;
+    private final PostDiscovery discovery;
+    private final UserCrawl userCrawl;
+    private final Executor executor;
+    private final BloomFilter visitedUsers;
+    private final BloomFilter visitedPosts;
+    private int postsDiscovered;
+
+    public CrawlFrontier(Limits limits, PostDiscovery discovery, UserCrawl userCrawl, Executor executor) {
+        this.limits = limits;
+        this.discovery = discovery;
+        this.userCrawl = userCrawl;
+        this.executor = executor;
+        this.visitedUsers = new BloomFilter(limits.budget(), FALSE_POSITIVE_RATE);
+        // Every crawled user adds at most fanOut posts
+        this.visitedPosts = new BloomFilter((long) limits.budget() * limits.fanOut() + 1, FALSE_POSITIVE_RATE);
+    }
+
+    public Result crawl(String seedPostId) {
+        List<String> posts = List.of(seedPostId);
+        visitedPosts.add(seedPostId);
+
+        int crawled = 0;
+        int hop = 0;
+        while (hop < limits.depth() && !posts.isEmpty() && crawled < limits.budget()) {
+            Set<String> users = discover(posts, limits.budget() - crawled);
+
+            // The last hop's posts would never be crawled, so don't collect them
+            Queue<String> next = new ConcurrentLinkedQueue<>();
+            boolean expand = hop + 1 < limits.depth();
+            userCrawl.crawl(users, commented -> {
+                if (expand) {
+                    commented.stream()
+                            .limit(limits.fanOut())
+                            .filter(visitedPosts::add)
+                            .forEach(next::add);
+                }
+            });
+
+            crawled += users.size();
+            hop++;
+            log.info("Hop {}: crawled {} users, {} posts queued for the next hop", hop, users.size(), next.size());
+            posts = new ArrayList<>(next);
+        }
+
+        return new Result(hop, crawled, postsDiscovered);
+    }
+
+    /**
+     * Returns up to remaining users, not visited before, who commented on the posts.
+     * Posts are discovered a few at a time, and discovery stops once enough users are found.
+     */
+    private Set<String> discover(List<String> posts, int remaining) {
+        Set<String> users = new LinkedHashSet<>();
+        for (int from = 0; from < posts.size() && users.size() < remaining; from += DISCOVERY_PARALLELISM) {
+            List<CompletableFuture<Set<String>>> wave = posts
+                    .subList(from, Math.min(posts.size(), from + DISCOVERY_PARALLELISM)).stream()
+                    .map(postId -> CompletableFuture.supplyAsync(() -> commentersOf(postId), executor))
+                    .toList();
+
+            for (CompletableFuture<Set<String>> commenters : wave) {
+                postsDiscovered++;
+                for (String username : commenters.join()) {
+                    if (users.size() >= remaining) break;
+                    if (visitedUsers.add(username)) {
+                        users.add(username);
+                    }
+                }
+            }
+        }
+        return users;
+    }
+
+    private Set<String> commentersOf(String postId) {
+        try {
+            return discovery.commenters(postId);
+        } catch (IOException | RuntimeException e) {
+            log.error("Skipping post {}: {}", postId, e.getMessage());
+            return Set.of();
+        }
+    }
+}
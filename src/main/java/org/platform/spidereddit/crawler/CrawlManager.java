@@ -1,51 +1,162 @@
 package org.platform.spidereddit.crawler;
 
+import okhttp3.OkHttpClient;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.platform.spidereddit.metrics.CrawlTrace;
+import org.platform.spidereddit.reddit.RedditConfig;
 import org.platform.spidereddit.reddit.UserHistoryFetcher;
+import org.platform.spidereddit.text.NearDuplicateDetector;
 import org.platform.spidereddit.text.WordGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class CrawlManager {
 
+    // Counted from the crawl's first fetch, so time queued behind other crawls isn't held against it
+    static final long CRAWL_TIMEOUT_SECONDS = 60;
+
     private final Logger log = LoggerFactory.getLogger(CrawlManager.class);
-    private final ExecutorService executor;
+    private final CrawlScheduler scheduler;
+    // Whether this manager created the scheduler, and shuts it down after its crawl
+    private final boolean ownsScheduler;
     private final WordGraph wordGraph;
     private final String accessToken;
+    private final OkHttpClient httpClient;
+    private final String baseUrl;
+    private final CrawlMetrics metrics;
+    private final CrawlTrace trace;
+    private final NearDuplicateDetector duplicates;
 
 
     public CrawlManager(int threadCount, WordGraph wordGraph, String accessToken) {
-        this.executor =  Executors.newFixedThreadPool(threadCount);
+        this(threadCount, wordGraph, accessToken, new OkHttpClient(), RedditConfig.API_BASE_URL, CrawlMetrics.noop(),
+                CrawlTrace.NONE);
+    }
+
+    // Fetchers share one client, and with it one connection pool, instead of creating one per user
+    public CrawlManager(int threadCount, WordGraph wordGraph, String accessToken,
+                        OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace) {
+        this(new CrawlScheduler(threadCount, 0), true, wordGraph, accessToken, httpClient, baseUrl, metrics, trace,
+                NearDuplicateDetector.NONE);
+        metrics.executorStarted(scheduler.workers());
+    }
+
+    /**
+     * Crawls through a scheduler shared with other crawls, which decides when each user is fetched.
+     */
+    public CrawlManager(CrawlScheduler scheduler, WordGraph wordGraph, String accessToken,
+                        OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace) {
+        this(scheduler, wordGraph, accessToken, httpClient, baseUrl, metrics, trace, NearDuplicateDetector.NONE);
+    }
+
+    /**
+     * Like the above, with the users' fetchers sharing a detector of near-duplicate comments.
+     */
+    public CrawlManager(CrawlScheduler scheduler, WordGraph wordGraph, String accessToken,
+                        OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace,
+                        NearDuplicateDetector duplicates) {
+        this(scheduler, false, wordGraph, accessToken, httpClient, baseUrl, metrics, trace, duplicates);
+    }
+
+    private CrawlManager(CrawlScheduler scheduler, boolean ownsScheduler, WordGraph wordGraph, String accessToken,
+                         OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace,
+                         NearDuplicateDetector duplicates) {
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
         this.wordGraph = wordGraph;
         this.accessToken = accessToken;
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.metrics = metrics;
+        this.trace = trace;
+        this.duplicates = duplicates;
     }
 
     public void crawlUsers(Set<String> usernames) {
-        for (String username : usernames) {
-            executor.submit(new UserHistoryFetcher(username, wordGraph, accessToken));
-        }
-        log.info("All tasks submitted. Awaiting completion...");
-        shutdownAndWait();
+        crawlUsers(usernames, posts -> {
+        });
     }
 
-    public void shutdownAndWait() {
-        executor.shutdown();
-        log.info("Executor shutting down...");
+    /**
+     * Crawls the users and passes the ids of the posts each one commented on to postsCommented,
+     * from the crawl threads.
+     */
+    public void crawlUsers(Set<String> usernames, Consumer<List<String>> postsCommented) {
+        crawl(usernames, username -> workers -> CompletableFuture.runAsync(fetcher(username, postsCommented), workers));
+    }
+
+    /**
+     * Like {@link #crawlUsers}, but fetches with OkHttp's async calls: the crawl threads only tag
+     * and merge. The client's Dispatcher bounds the requests in flight (maxRequests,
+     * maxRequestsPerHost) and queues the rest.
+     */
+    public void crawlUsersAsync(Set<String> usernames) {
+        crawlUsersAsync(usernames, posts -> {
+        });
+    }
+
+    public void crawlUsersAsync(Set<String> usernames, Consumer<List<String>> postsCommented) {
+        crawl(usernames, username -> fetcher(username, postsCommented)::runAsync);
+    }
+
+    /**
+     * Fetches the users through the scheduler and waits for them. A crawl that times out, is
+     * interrupted, or loses users to the scheduler closing throws {@link CrawlAbandonedException}.
+     */
+    private void crawl(Set<String> usernames, Function<String, CrawlScheduler.Fetch> fetch) {
+        CrawlScheduler.Job job = scheduler.submit(trace.id(), usernames.stream().map(fetch).toList());
+        log.info("All users queued. Awaiting completion...");
 
         try {
-            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                log.error("Timeout: Forcing shutdown...");
-                executor.shutdownNow(); // cancel running tasks
-            } else {
-                log.info("All tasks completed — executor fully shut down.");
+            // A job dropped before it started completes without starting
+            CompletableFuture.anyOf(job.started(), job.completion()).get();
+            job.completion().get(CRAWL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (job.dropped()) {
+                throw new CrawlAbandonedException("Crawl " + trace.id() + " was dropped by its scheduler");
             }
+        } catch (TimeoutException e) {
+            log.error("Timeout: Abandoning remaining users...");
+            job.cancel();
+            throw new CrawlAbandonedException("Crawl " + trace.id() + " timed out after "
+                    + CRAWL_TIMEOUT_SECONDS + " s");
         } catch (InterruptedException e) {
-            executor.shutdownNow();
+            job.cancel();
             Thread.currentThread().interrupt();
+            throw new CrawlAbandonedException("Crawl " + trace.id() + " was interrupted");
+        } catch (ExecutionException e) {
+            // Fetchers log their own failures, so this is not expected
+            log.error("Crawl failed: {}", e.getCause().getMessage());
+        } finally {
+            shutdownAndWait();
+        }
+    }
+
+    private UserHistoryFetcher fetcher(String username, Consumer<List<String>> postsCommented) {
+        return new UserHistoryFetcher(username, wordGraph, accessToken, httpClient, baseUrl, metrics, trace,
+                postsCommented, duplicates);
+    }
+
+    /**
+     * Shuts down the crawl threads when this manager created them; a shared scheduler outlives its crawls.
+     */
+    public void shutdownAndWait() {
+        if (!ownsScheduler) {
+            return;
+        }
+        log.info("Executor shutting down...");
+        try {
+            scheduler.close();
+        } finally {
+            metrics.executorStopped(scheduler.workers());
         }
     }
 }
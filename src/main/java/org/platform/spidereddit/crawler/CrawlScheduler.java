@@ -0,0 +1,365 @@
+package org.platform.spidereddit.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Shares the Reddit budget between all running crawls. At most slots users are fetched at
+ * once and, when a rate is set, at most requestsPerMinute calls are started per minute.
+ * Each crawl submits its users as a job, and free slots go to jobs by start-time fair
+ * queuing: every job gets a share of the slots in proportion to its weight, so a big crawl
+ * can't starve a small one. Small jobs get a bigger weight, which keeps their latency low.
+ * The slots can be fixed, or follow an {@link AdaptiveLimit} learned from Reddit's latency.
+ */
+public class CrawlScheduler implements AutoCloseable {
+
+    // Calls of one user fetch: the comments and submitted listings
+    static final int REQUESTS_PER_USER = 2;
+
+    // Jobs of at most this many users get SMALL_JOB_WEIGHT shares instead of one
+    static final int SMALL_JOB_USERS = 100;
+    static final int SMALL_JOB_WEIGHT = 4;
+
+    // Weight of the latest fetch in the mean fetch time the ETAs are based on
+    private static final double FETCH_TIME_SMOOTHING = 0.2;
+
+    /**
+     * Starts fetching one user. The slot is held until the returned future completes; blocking
+     * fetches run on the given workers.
+     */
+    @FunctionalInterface
+    public interface Fetch {
+        CompletableFuture<?> start(Executor workers);
+    }
+
+    /**
+     * Where a job stands. position is the job's rank for the next free slot, 1 being next, and
+     * 0 once all its users have started. etaSeconds is null until a fetch time was measured.
+     */
+    public record Progress(String crawlId, int users, int done, int inFlight, int queued, int position,
+                           Double etaSeconds) {
+    }
+
+    private final Logger log = LoggerFactory.getLogger(CrawlScheduler.class);
+    private final IntSupplier slots;
+    private final int maxSlots;
+    private final double requestsPerNano;
+    private final LongSupplier clock;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService timer;
+
+    // Guarded by this
+    private final List<Job> jobs = new ArrayList<>();
+    private int inFlight;
+    private double virtualTime;
+    private double tokens;
+    private long refilledAt;
+    private boolean wakeupScheduled;
+    private double meanFetchNanos;
+
+    public CrawlScheduler(int slots, int requestsPerMinute) {
+        this(() -> slots, slots, requestsPerMinute, System::nanoTime);
+    }
+
+    /**
+     * Fetches as many users at once as the limit currently allows.
+     */
+    public CrawlScheduler(AdaptiveLimit limit, int requestsPerMinute) {
+        this(limit::limit, limit.maxLimit(), requestsPerMinute, System::nanoTime);
+    }
+
+    CrawlScheduler(IntSupplier slots, int maxSlots, int requestsPerMinute, LongSupplier clock) {
+        if (maxSlots < 1 || requestsPerMinute < 0) {
+            throw new IllegalArgumentException("Invalid crawl budget: " + maxSlots + " slots, "
+                    + requestsPerMinute + " requests per minute");
+        }
+        this.slots = slots;
+        this.maxSlots = maxSlots;
+        this.requestsPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.clock = clock;
+        // A thread per slot the limit can reach; idle ones time out while the limit is lower
+        this.workers = new ThreadPoolExecutor(maxSlots, maxSlots, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.workers.allowCoreThreadTimeOut(true);
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.tokens = bucketSize();
+        this.refilledAt = clock.getAsLong();
+    }
+
+    /**
+     * Queues a crawl's user fetches. The job starts when its first fetch does, and completes
+     * once every fetch has completed, or once the fetches already started have completed after
+     * {@link Job#cancel()}.
+     */
+    public Job submit(String crawlId, List<Fetch> fetches) {
+        Job job = new Job(crawlId, fetches);
+        synchronized (this) {
+            if (!fetches.isEmpty()) {
+                // A new job starts at the current virtual time, with no credit for the time it wasn't queued
+                job.lastFinish = virtualTime;
+                jobs.add(job);
+            }
+        }
+        if (fetches.isEmpty()) {
+            job.started.complete(null);
+            job.completion.complete(null);
+        }
+        dispatch();
+        return job;
+    }
+
+    public synchronized List<Progress> progress() {
+        return jobs.stream().map(this::progress).toList();
+    }
+
+    public synchronized Optional<Progress> progress(String crawlId) {
+        return jobs.stream()
+                .filter(job -> job.crawlId.equals(crawlId))
+                .findFirst()
+                .map(this::progress);
+    }
+
+    public synchronized int queuedUsers() {
+        return jobs.stream().mapToInt(job -> job.queued.size()).sum();
+    }
+
+    public synchronized int jobCount() {
+        return jobs.size();
+    }
+
+    public int limit() {
+        return slots.getAsInt();
+    }
+
+    public ThreadPoolExecutor workers() {
+        return workers;
+    }
+
+    /**
+     * Drops the users of every job not yet started, since nothing dispatches them any more,
+     * and waits for the fetches in flight.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            List.copyOf(jobs).forEach(this::cancel);
+        }
+        timer.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.error("Timeout: Forcing shutdown...");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Starts as many fetches as the free slots and the rate allow, outside the lock
+    private void dispatch() {
+        List<Runnable> starts = new ArrayList<>();
+        synchronized (this) {
+            int limit = slots.getAsInt();
+            while (inFlight < limit && !workers.isShutdown()) {
+                Job next = jobs.stream()
+                        .filter(job -> !job.queued.isEmpty())
+                        .min(Comparator.comparingDouble(this::startTag))
+                        .orElse(null);
+                if (next == null) break;
+                if (!takeTokens()) {
+                    scheduleWakeup();
+                    break;
+                }
+
+                double start = startTag(next);
+                virtualTime = start;
+                next.lastFinish = start + 1 / next.weight;
+                Fetch fetch = next.queued.poll();
+                next.inFlight++;
+                inFlight++;
+                starts.add(() -> start(next, fetch));
+            }
+        }
+        starts.forEach(Runnable::run);
+    }
+
+    private void start(Job job, Fetch fetch) {
+        job.started.complete(null);
+        long started = clock.getAsLong();
+        CompletableFuture<?> fetching;
+        try {
+            fetching = fetch.start(workers);
+        } catch (RuntimeException e) {
+            log.error("Fetch of crawl {} failed to start: {}", job.crawlId, e.getMessage());
+            fetching = CompletableFuture.completedFuture(null);
+        }
+        fetching.whenComplete((ignored, e) -> finished(job, clock.getAsLong() - started));
+    }
+
+    private void finished(Job job, long fetchNanos) {
+        boolean complete;
+        synchronized (this) {
+            inFlight--;
+            job.inFlight--;
+            job.done++;
+            meanFetchNanos = meanFetchNanos == 0 ? fetchNanos
+                    : meanFetchNanos + FETCH_TIME_SMOOTHING * (fetchNanos - meanFetchNanos);
+            complete = job.queued.isEmpty() && job.inFlight == 0;
+            if (complete) {
+                jobs.remove(job);
+            }
+        }
+        if (complete) {
+            job.completion.complete(null);
+        }
+        dispatch();
+    }
+
+    private synchronized void cancel(Job job) {
+        job.dropped |= !job.queued.isEmpty();
+        job.queued.clear();
+        if (job.inFlight == 0 && jobs.remove(job)) {
+            job.completion.complete(null);
+        }
+    }
+
+    // Start-time fair queuing: a job's next fetch starts where its previous one finished, or now if it was idle
+    private double startTag(Job job) {
+        return Math.max(virtualTime, job.lastFinish);
+    }
+
+    private boolean takeTokens() {
+        if (requestsPerNano == 0) {
+            return true;
+        }
+        long now = clock.getAsLong();
+        tokens = Math.min(bucketSize(), tokens + (now - refilledAt) * requestsPerNano);
+        refilledAt = now;
+        if (tokens < REQUESTS_PER_USER) {
+            return false;
+        }
+        tokens -= REQUESTS_PER_USER;
+        return true;
+    }
+
+    private void scheduleWakeup() {
+        if (wakeupScheduled) {
+            return;
+        }
+        wakeupScheduled = true;
+        long delay = (long) Math.ceil((REQUESTS_PER_USER - tokens) / requestsPerNano);
+        timer.schedule(() -> {
+            synchronized (this) {
+                wakeupScheduled = false;
+            }
+            dispatch();
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    // Enough for every slot to start at once, so the rate limit doesn't delay the first fetches
+    private double bucketSize() {
+        return (double) maxSlots * REQUESTS_PER_USER;
+    }
+
+    private Progress progress(Job job) {
+        int position = 0;
+        if (!job.queued.isEmpty()) {
+            // Ties go to the job submitted first, as in dispatch
+            double tag = startTag(job);
+            int index = jobs.indexOf(job);
+            position = 1 + (int) IntStream.range(0, jobs.size())
+                    .filter(i -> i != index && !jobs.get(i).queued.isEmpty())
+                    .filter(i -> startTag(jobs.get(i)) < tag || (startTag(jobs.get(i)) == tag && i < index))
+                    .count();
+        }
+        return new Progress(job.crawlId, job.users, job.done, job.inFlight, job.queued.size(), position, eta(job));
+    }
+
+    /**
+     * Estimates when the job's last fetch completes: its queued users are fetched at its share
+     * of the scheduler's throughput, then the last one takes a mean fetch time.
+     */
+    private Double eta(Job job) {
+        if (meanFetchNanos == 0) {
+            return null;
+        }
+        double usersPerNano = slots.getAsInt() / meanFetchNanos;
+        if (requestsPerNano > 0) {
+            usersPerNano = Math.min(usersPerNano, requestsPerNano / REQUESTS_PER_USER);
+        }
+        double weights = jobs.stream()
+                .filter(other -> !other.queued.isEmpty())
+                .mapToDouble(other -> other.weight)
+                .sum();
+        double share = job.queued.isEmpty() ? 1 : job.weight / weights;
+        double nanos = job.queued.size() / (usersPerNano * share) + meanFetchNanos;
+        return nanos / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * The users of one crawl, queued in the scheduler.
+     */
+    public final class Job {
+
+        private final String crawlId;
+        private final int users;
+        private final double weight;
+        private final Deque<Fetch> queued;
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private int inFlight;
+        private int done;
+        private double lastFinish;
+        private volatile boolean dropped;
+
+        private Job(String crawlId, List<Fetch> fetches) {
+            this.crawlId = crawlId;
+            this.users = fetches.size();
+            this.weight = users <= SMALL_JOB_USERS ? SMALL_JOB_WEIGHT : 1;
+            this.queued = new ArrayDeque<>(fetches);
+        }
+
+        /**
+         * Completes when the first of the job's fetches starts, after any wait behind other jobs.
+         */
+        public CompletableFuture<Void> started() {
+            return started;
+        }
+
+        public CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        /**
+         * Whether users were dropped before they started, by {@link #cancel()} or by closing the scheduler.
+         */
+        public boolean dropped() {
+            return dropped;
+        }
+
+        /**
+         * Drops the users not yet started; the job completes once the started ones have.
+         */
+        public void cancel() {
+            CrawlScheduler.this.cancel(this);
+        }
+    }
+}
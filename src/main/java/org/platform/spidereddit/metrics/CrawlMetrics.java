@@ -0,0 +1,330 @@
+package org.platform.spidereddit.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Dispatcher;
+import org.platform.spidereddit.crawler.CrawlCoalescer;
+import org.platform.spidereddit.crawler.CrawlScheduler;
+import org.platform.spidereddit.reddit.CircuitBreaker;
+import org.platform.spidereddit.reddit.CredentialPool;
+import org.platform.spidereddit.reddit.HedgingInterceptor;
+import org.platform.spidereddit.text.WordGraph;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for every crawl stage, shared by the service, the crawl managers
+ * and the fetchers. Everything is published under "spidereddit." at /actuator/metrics
+ * and /actuator/prometheus.
+ */
+public class CrawlMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer userProcessing;
+    private final Timer tagging;
+    private final Timer merge;
+    private final DistributionSummary commenters;
+    private final Counter savedRequests;
+    private final Counter duplicateUsers;
+    private final Counter filterSavedRequests;
+    private final Counter rejectedCalls;
+    private final Counter duplicateComments;
+
+    // The shared scheduler's workers, plus those of any crawl running its own scheduler; the gauges sum over them
+    private final Set<ThreadPoolExecutor> executors = ConcurrentHashMap.newKeySet();
+    // Schedulers run many crawls on one long-lived executor
+    private final Set<CrawlScheduler> schedulers = ConcurrentHashMap.newKeySet();
+
+    public CrawlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.userProcessing = Timer.builder("spidereddit.user.processing")
+                .description("Fetching, tagging and merging the history of one user")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.tagging = Timer.builder("spidereddit.user.tagging")
+                .description("POS tagging of one user's comments and posts")
+                .register(registry);
+        this.merge = Timer.builder("spidereddit.graph.merge")
+                .description("Recording one user's co-occurrences in the word graph")
+                .register(registry);
+        this.commenters = DistributionSummary.builder("spidereddit.crawl.commenters")
+                .description("Distinct commenters discovered per crawled post")
+                .register(registry);
+        this.savedRequests = Counter.builder("spidereddit.crawl.cache.saved.requests")
+                .description("Reddit calls not made because a crawl was coalesced or cached")
+                .register(registry);
+        this.duplicateUsers = Counter.builder("spidereddit.crawl.batch.duplicate.users")
+                .description("Commenters of several posts in a batch, fetched once instead of once per post")
+                .register(registry);
+        this.filterSavedRequests = Counter.builder("spidereddit.crawl.filter.saved.requests")
+                .description("Reddit calls not made because a commenter was filtered before fetching")
+                .register(registry);
+        this.duplicateComments = Counter.builder("spidereddit.crawl.duplicate.comments")
+                .description("Comments not tagged because they nearly duplicate one seen earlier in the crawl")
+                .register(registry);
+        this.rejectedCalls = Counter.builder("spidereddit.reddit.circuit.rejected")
+                .description("Reddit calls failed at once while the circuit breaker was open")
+                .register(registry);
+
+        Gauge.builder("spidereddit.executor.queued", executors,
+                        running -> running.stream().mapToInt(executor -> executor.getQueue().size()).sum())
+                .description("Users waiting for a crawl thread")
+                .register(registry);
+        Gauge.builder("spidereddit.executor.active", executors,
+                        running -> running.stream().mapToInt(ThreadPoolExecutor::getActiveCount).sum())
+                .description("Crawl threads fetching a user")
+                .register(registry);
+        Gauge.builder("spidereddit.crawl.active", this, CrawlMetrics::activeCrawls)
+                .description("Crawls fetching user histories")
+                .register(registry);
+    }
+
+    /**
+     * Metrics recorded into a private registry, for callers that don't publish them.
+     */
+    public static CrawlMetrics noop() {
+        return new CrawlMetrics(new SimpleMeterRegistry());
+    }
+
+    /**
+     * Publishes the size of the word graph, read from its latest snapshot.
+     */
+    public void registerGraph(WordGraph wordGraph) {
+        Gauge.builder("spidereddit.graph.nodes", wordGraph, graph -> graph.latestSnapshot().nodeCount())
+                .description("Words in the published graph snapshot")
+                .register(registry);
+        Gauge.builder("spidereddit.graph.edges", wordGraph, graph -> graph.latestSnapshot().edgeCount())
+                .description("Co-occurrence edges in the published graph snapshot")
+                .register(registry);
+        Gauge.builder("spidereddit.graph.size", wordGraph, WordGraph::estimatedBytes)
+                .description("Estimated heap held by the word graph")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the number of posts remembered by the crawl cache.
+     */
+    public void registerCrawlCache(CrawlCoalescer coalescer) {
+        Gauge.builder("spidereddit.crawl.cache.size", coalescer, CrawlCoalescer::size)
+                .description("Posts being crawled or crawled within the cache TTL")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the users waiting in the shared crawl scheduler and the crawls they belong to.
+     * Its worker threads are published by the executor gauges.
+     */
+    public void registerScheduler(CrawlScheduler scheduler) {
+        Gauge.builder("spidereddit.scheduler.queued", scheduler, CrawlScheduler::queuedUsers)
+                .description("Users waiting for a fetch slot, across all crawls")
+                .register(registry);
+        Gauge.builder("spidereddit.scheduler.jobs", scheduler, CrawlScheduler::jobCount)
+                .description("Crawls with users queued or being fetched")
+                .register(registry);
+        Gauge.builder("spidereddit.scheduler.limit", scheduler, CrawlScheduler::limit)
+                .description("Users the scheduler fetches at once, fixed or learned from Reddit's latency")
+                .register(registry);
+        schedulers.add(scheduler);
+        executorStarted(scheduler.workers());
+    }
+
+    private int activeCrawls() {
+        return executors.size() - schedulers.size()
+                + schedulers.stream().mapToInt(CrawlScheduler::jobCount).sum();
+    }
+
+    /**
+     * Publishes the Reddit credentials taking calls, out of the configured ones.
+     */
+    public void registerCredentialPool(CredentialPool pool) {
+        Gauge.builder("spidereddit.reddit.credentials.active", pool, CredentialPool::activeCount)
+                .description("Reddit credentials in rotation, not resting after a 429 or 401")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the state of the circuit breaker around the Reddit API: 0 closed, 1 half-open, 2 open.
+     */
+    public void registerCircuitBreaker(CircuitBreaker breaker) {
+        Gauge.builder("spidereddit.reddit.circuit.state", breaker, circuit -> circuit.state().ordinal())
+                .description("Reddit circuit breaker: 0 closed, 1 half-open (probing), 2 open (failing fast)")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the share of Reddit reads that were hedged and how long reads run before they are.
+     */
+    public void registerHedging(HedgingInterceptor hedging) {
+        Gauge.builder("spidereddit.reddit.hedge.rate", hedging, HedgingInterceptor::hedgeRate)
+                .description("Share of Reddit reads a duplicate was sent for")
+                .register(registry);
+        Gauge.builder("spidereddit.reddit.hedge.delay", hedging, h -> h.delayNanos() / 1e6)
+                .description("p95 latency of recent Reddit reads, after which a read is hedged")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the async Reddit calls running and waiting for a slot in the dispatcher.
+     */
+    public void registerDispatcher(Dispatcher dispatcher) {
+        Gauge.builder("spidereddit.reddit.in.flight", dispatcher, Dispatcher::runningCallsCount)
+                .description("Async Reddit calls in flight")
+                .register(registry);
+        Gauge.builder("spidereddit.reddit.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .description("Async Reddit calls waiting for the in-flight limit")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Records a crawl stage: auth, discovery, users or export.
+     */
+    public void stage(Timer.Sample sample, String stage) {
+        sample.stop(Timer.builder("spidereddit.crawl.stage")
+                .description("Time spent in each stage of a crawl")
+                .tag("stage", stage)
+                .register(registry));
+    }
+
+    /**
+     * Records one Reddit API call by endpoint and HTTP status, 429s included.
+     */
+    public void request(String endpoint, String status, long nanos) {
+        Timer.builder("spidereddit.reddit.requests")
+                .description("Reddit API calls, until the response headers arrive")
+                .tag("endpoint", endpoint)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a crawl request by whether it crawled (miss), waited for a running crawl
+     * (coalesced) or was served from the cache (hit), and the Reddit calls the latter two saved.
+     */
+    public void crawlCache(CrawlCoalescer.Outcome outcome, int requests) {
+        Counter.builder("spidereddit.crawl.cache")
+                .description("Crawl requests by cache outcome")
+                .tag("result", outcome.name().toLowerCase(Locale.ENGLISH))
+                .register(registry)
+                .increment();
+        if (outcome != CrawlCoalescer.Outcome.MISS) {
+            savedRequests.increment(requests);
+        }
+    }
+
+    /**
+     * Counts the users a batch didn't fetch twice: commenters found across its posts minus distinct ones.
+     */
+    public void batchUsers(int discovered, int distinct) {
+        duplicateUsers.increment(discovered - distinct);
+    }
+
+    /**
+     * Counts a commenter skipped before fetching, by reason, and the two listing calls it saved.
+     */
+    public void authorFiltered(String reason) {
+        Counter.builder("spidereddit.crawl.filtered.users")
+                .description("Commenters skipped before their history was fetched")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+        filterSavedRequests.increment(2);
+    }
+
+    /**
+     * Counts comments not tagged because they nearly duplicate one seen earlier in the crawl.
+     */
+    public void duplicateComments(int count) {
+        duplicateComments.increment(count);
+    }
+
+    /**
+     * Counts a credential taken out of rotation: rate_limited, unauthorized or token.
+     */
+    public void credentialRested(String reason) {
+        Counter.builder("spidereddit.reddit.credential.rests")
+                .description("Reddit credentials taken out of rotation")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts a move of the Reddit circuit breaker to a state: CLOSED, HALF_OPEN or OPEN.
+     */
+    public void circuitTransition(String state) {
+        Counter.builder("spidereddit.reddit.circuit.transitions")
+                .description("Moves of the Reddit circuit breaker, by the state moved to")
+                .tag("state", state.toLowerCase(Locale.ENGLISH))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts a Reddit call failed at once because the circuit breaker was open.
+     */
+    public void circuitRejected() {
+        rejectedCalls.increment();
+    }
+
+    /**
+     * Counts a duplicate sent for a slow read, by whether it answered first.
+     */
+    public void hedged(boolean won) {
+        Counter.builder("spidereddit.reddit.hedges")
+                .description("Duplicates sent for slow Reddit reads")
+                .tag("result", won ? "won" : "lost")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records how much sooner a winning duplicate answered than the read it hedged.
+     */
+    public void hedgeSaved(long nanos) {
+        Timer.builder("spidereddit.reddit.hedge.saved")
+                .description("Latency saved by duplicates that answered before the hedged read")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void commenters(int count) {
+        commenters.record(count);
+    }
+
+    public void userProcessed(Timer.Sample sample) {
+        sample.stop(userProcessing);
+    }
+
+    public void tagging(long nanos) {
+        tagging.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void merge(long nanos) {
+        merge.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void executorStarted(ThreadPoolExecutor executor) {
+        executors.add(executor);
+    }
+
+    public void executorStopped(ThreadPoolExecutor executor) {
+        executors.remove(executor);
+    }
+}
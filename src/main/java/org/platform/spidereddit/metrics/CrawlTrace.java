@@ -0,0 +1,146 @@
+package org.platform.spidereddit.metrics;
+
+import org.platform.spidereddit.model.TraceSpan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Timeline of one crawl. Spans go into arrays allocated up front: recording claims a
+ * slot with one atomic increment and writes primitives, so it takes no lock and
+ * allocates nothing. Spans past the capacity are counted and dropped.
+ */
+public class CrawlTrace {
+
+    public enum Span {
+        AUTH, DISCOVERY, USER, USER_COMMENTS, USER_SUBMITTED, BACKOFF, TAGGING, MERGE, EXPORT
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // For callers that are not part of a traced crawl: records nothing
+    public static final CrawlTrace NONE = new CrawlTrace("none", "", 0);
+
+    private static final String[] NAMES = Arrays.stream(Span.values())
+            .map(span -> span.name().toLowerCase(Locale.ENGLISH))
+            .toArray(String[]::new);
+
+    private final String id;
+    private final String url;
+    private final long startedAt = System.currentTimeMillis();
+    private final long origin = System.nanoTime();
+    private volatile long finishedNanos = -1;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final long[] starts;
+    private final long[] durations;
+    private final long[] threads;
+    private final String[] details;
+    // Written last: ordinal + 1 once the slot is complete, 0 while it is being written
+    private final AtomicIntegerArray kinds;
+
+    public CrawlTrace(String id, String url, int capacity) {
+        this.id = id;
+        this.url = url;
+        this.starts = new long[capacity];
+        this.durations = new long[capacity];
+        this.threads = new long[capacity];
+        this.details = new String[capacity];
+        this.kinds = new AtomicIntegerArray(capacity);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Timestamp for the start of a span, to pass to {@link #record}.
+     */
+    public long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a span that started at {@code start} (from {@link #now()}) and ends now.
+     */
+    public void record(Span span, String detail, long start) {
+        if (starts.length == 0) return;
+
+        long end = System.nanoTime();
+        int slot = next.getAndIncrement();
+        if (slot >= starts.length) return;
+
+        starts[slot] = start - origin;
+        durations[slot] = end - start;
+        threads[slot] = Thread.currentThread().threadId();
+        details[slot] = detail;
+        kinds.set(slot, span.ordinal() + 1);
+    }
+
+    public void finish() {
+        finishedNanos = System.nanoTime() - origin;
+    }
+
+    /**
+     * Returns the spans recorded so far, in the order they ended.
+     */
+    public List<TraceSpan> spans() {
+        int size = Math.min(next.get(), starts.length);
+        List<TraceSpan> spans = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            int kind = kinds.get(slot);
+            // Claimed but still being written
+            if (kind == 0) continue;
+
+            spans.add(new TraceSpan(NAMES[kind - 1], details[slot], threads[slot],
+                    starts[slot] / 1e6, durations[slot] / 1e6));
+        }
+        return spans;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("id", id);
+        trace.put("url", url);
+        trace.put("startedAt", startedAt);
+        long finished = finishedNanos;
+        trace.put("durationMs", finished < 0 ? null : finished / 1e6);
+        trace.put("dropped", Math.max(0, next.get() - starts.length));
+        trace.put("spans", spans());
+        return trace;
+    }
+
+    /**
+     * Returns the trace in Chrome's trace event format, for chrome://tracing or Perfetto:
+     * one complete ("X") event per span, a row per crawl thread.
+     */
+    public Map<String, Object> toChromeTrace() {
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (TraceSpan span : spans()) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("name", span.getName());
+            event.put("cat", "crawl");
+            event.put("ph", "X");
+            event.put("ts", span.getStartMs() * 1000);
+            event.put("dur", span.getDurationMs() * 1000);
+            event.put("pid", 1);
+            event.put("tid", span.getThread());
+            if (span.getDetail() != null) {
+                event.put("args", Map.of("detail", span.getDetail()));
+            }
+            events.add(event);
+        }
+        return Map.of(
+                "traceEvents", events,
+                "displayTimeUnit", "ms",
+                "otherData", Map.of("crawlId", id, "url", url)
+        );
+    }
+}
@@ -0,0 +1,44 @@
+package org.platform.spidereddit.metrics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The traces of the most recent crawls, by crawl id; older ones are evicted.
+ */
+public class CrawlTraces {
+
+    private final int retained;
+    private final int spansPerTrace;
+    private final Map<String, CrawlTrace> traces = new ConcurrentHashMap<>();
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+
+    public CrawlTraces(int retained, int spansPerTrace) {
+        this.retained = retained;
+        this.spansPerTrace = spansPerTrace;
+    }
+
+    /**
+     * Starts the trace of a new crawl under a fresh id.
+     */
+    public CrawlTrace start(String url) {
+        CrawlTrace trace = new CrawlTrace(UUID.randomUUID().toString(), url, spansPerTrace);
+        traces.put(trace.id(), trace);
+        order.add(trace.id());
+        while (order.size() > retained) {
+            String evicted = order.poll();
+            if (evicted != null) {
+                traces.remove(evicted);
+            }
+        }
+        return trace;
+    }
+
+    public Optional<CrawlTrace> get(String id) {
+        return Optional.ofNullable(traces.get(id));
+    }
+}
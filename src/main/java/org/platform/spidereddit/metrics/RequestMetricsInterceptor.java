@@ -0,0 +1,47 @@
+package org.platform.spidereddit.metrics;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * Times every call made through the shared OkHttpClient, tagged with the Reddit endpoint
+ * and the response status, or "IO_ERROR" when no response arrived.
+ */
+public class RequestMetricsInterceptor implements Interceptor {
+
+    private final CrawlMetrics metrics;
+
+    public RequestMetricsInterceptor(CrawlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = endpoint(request.url().encodedPath());
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            metrics.request(endpoint, String.valueOf(response.code()), System.nanoTime() - start);
+            return response;
+        } catch (IOException e) {
+            metrics.request(endpoint, "IO_ERROR", System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    // Low cardinality names for the paths the crawler calls; user names and post ids are dropped
+    static String endpoint(String path) {
+        if (path.endsWith("/access_token")) return "token";
+        if (path.startsWith("/comments/")) return "post_comments";
+        if (path.startsWith("/r/") && !path.contains("/comments/")) return "subreddit_listing";
+        if (path.startsWith("/user/")) {
+            if (path.endsWith("/comments")) return "user_comments";
+            if (path.endsWith("/submitted")) return "user_submitted";
+        }
+        return "other";
+    }
+}
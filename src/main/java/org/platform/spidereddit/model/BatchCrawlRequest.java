@@ -0,0 +1,17 @@
+package org.platform.spidereddit.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of a batch crawl: post URLs and subreddit listing URLs, crawled into the graph as one.
+ */
+@Data
+@NoArgsConstructor
+public class BatchCrawlRequest {
+    private List<String> urls = List.of();
+    // Posts taken from each subreddit listing; Reddit returns at most 100
+    private int limit = 25;
+}
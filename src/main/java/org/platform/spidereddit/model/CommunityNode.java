@@ -0,0 +1,13 @@
+package org.platform.spidereddit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommunityNode {
+    private String id;
+    private int community;
+}
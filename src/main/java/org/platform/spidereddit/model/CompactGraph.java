@@ -0,0 +1,19 @@
+package org.platform.spidereddit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Graph in the compact wire format: every word is sent once, and edge i goes from
+ * nodes[sources[i]] to nodes[targets[i]] with weight weights[i].
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompactGraph {
+    private String[] nodes;
+    private int[] sources;
+    private int[] targets;
+    private int[] weights;
+}
@@ -0,0 +1,22 @@
+package org.platform.spidereddit.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query parameters shared by the endpoints that return a graph.
+ */
+@Data
+@NoArgsConstructor
+public class ExportOptions {
+    private int minWeight = 3;
+    // full, top (topN words by weighted degree) or backbone (disparity filter at alpha)
+    private String mode = "full";
+    private int topN = 50;
+    private double alpha = 0.05;
+    // raw co-occurrence counts, or pmi, npmi, jaccard scores (full mode only)
+    private String weighting = "raw";
+    private double minScore = Double.NEGATIVE_INFINITY;
+    // json ({nodes, edges} objects) or compact (words once, edges as index arrays; raw weighting only)
+    private String format = "json";
+}
@@ -0,0 +1,15 @@
+package org.platform.spidereddit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScoredEdge {
+    private String source;
+    private String target;
+    private int weight;
+    private double score;
+}
@@ -0,0 +1,19 @@
+package org.platform.spidereddit.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of a spider crawl: a seed post and how far to follow its commenters.
+ */
+@Data
+@NoArgsConstructor
+public class SpiderCrawlRequest {
+    private String url;
+    // Hops from the seed post; 1 crawls only its commenters, like a single crawl
+    private int depth = 2;
+    // Posts followed per user into the next hop
+    private int fanOut = 5;
+    // Users crawled in total
+    private int budget = 1000;
+}
@@ -0,0 +1,16 @@
+package org.platform.spidereddit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TraceSpan {
+    private String name;
+    private String detail;
+    private long thread;
+    private double startMs;
+    private double durationMs;
+}
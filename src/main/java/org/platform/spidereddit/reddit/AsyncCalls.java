@@ -0,0 +1,62 @@
+package org.platform.spidereddit.reddit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adapts OkHttp's callback API to CompletableFuture.
+ */
+public final class AsyncCalls {
+
+    // Tags enqueued requests, so interceptors can tell them from calls that block a caller's thread
+    private enum Enqueued {
+        INSTANCE
+    }
+
+    private AsyncCalls() {
+    }
+
+    /**
+     * Whether the request was sent with {@link #enqueue}, so it runs on a dispatcher thread.
+     */
+    public static boolean isEnqueued(Request request) {
+        return request.tag(Enqueued.class) != null;
+    }
+
+    /**
+     * Enqueues the request on the client's dispatcher. The future completes on a dispatcher
+     * thread with the open response, which the caller must close. Cancelling the future
+     * cancels the call.
+     */
+    public static CompletableFuture<Response> enqueue(OkHttpClient httpClient, Request request) {
+        Call call = httpClient.newCall(request.newBuilder().tag(Enqueued.class, Enqueued.INSTANCE).build());
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        response.whenComplete((ignored, e) -> {
+            if (response.isCancelled()) {
+                call.cancel();
+            }
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failed, IOException e) {
+                response.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call succeeded, Response result) {
+                if (!response.complete(result)) {
+                    // Cancelled meanwhile: nobody will read it
+                    result.close();
+                }
+            }
+        });
+        return response;
+    }
+}
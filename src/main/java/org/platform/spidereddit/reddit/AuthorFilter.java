@@ -0,0 +1,21 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Decides, after discovery and before any history is fetched, whether a commenter is worth
+ * the two listing calls of a crawl.
+ */
+@FunctionalInterface
+public interface AuthorFilter {
+
+    AuthorFilter NONE = (author, comments) -> null;
+
+    /**
+     * Returns why the author shouldn't be crawled, judging by their lowercased name and their
+     * comments in the thread, or null to crawl them. The reason tags the filtered users metric.
+     */
+    String reject(String author, List<JsonNode> comments);
+}
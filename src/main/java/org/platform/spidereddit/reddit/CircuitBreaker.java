@@ -0,0 +1,198 @@
+package org.platform.spidereddit.reddit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling Reddit while it is down. Installed on every client, it tracks the last WINDOW
+ * calls. Once at least MIN_CALLS were made and failureRate of them failed (an I/O error or a
+ * 5xx), or slowCallRate took longer than slowCallNanos, the breaker opens: every call fails at
+ * once with {@link RedditUnavailableException}, so crawls stop piling up threads on a dead API.
+ * After openNanos it lets trialCalls through (half-open). If they all succeed it closes, and
+ * any failed or slow trial opens it again. 429s count as successes; the credential pool
+ * handles them.
+ */
+public class CircuitBreaker implements Interceptor {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    static final int WINDOW = 50;
+    static final int MIN_CALLS = 20;
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+    private final double failureRate;
+    private final double slowCallRate;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int trialCalls;
+    private final CrawlMetrics metrics;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private final byte[] outcomes = new byte[WINDOW];
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public CircuitBreaker(double failureRate, double slowCallRate, long slowCallNanos, long openNanos, int trialCalls,
+                          CrawlMetrics metrics) {
+        this(failureRate, slowCallRate, slowCallNanos, openNanos, trialCalls, metrics, System::nanoTime);
+    }
+
+    CircuitBreaker(double failureRate, double slowCallRate, long slowCallNanos, long openNanos, int trialCalls,
+                   CrawlMetrics metrics, LongSupplier clock) {
+        if (failureRate <= 0 || failureRate > 1 || slowCallRate <= 0 || slowCallRate > 1 || trialCalls < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker thresholds: failure rate " + failureRate
+                    + ", slow call rate " + slowCallRate + ", " + trialCalls + " trial calls");
+        }
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.slowCallNanos = slowCallNanos;
+        this.openNanos = openNanos;
+        this.trialCalls = trialCalls;
+        this.metrics = metrics;
+        this.clock = clock;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Fails if the breaker is open, without taking a trial call. New crawls check this first,
+     * so they fail before doing any work.
+     */
+    public synchronized void checkAvailable() throws RedditUnavailableException {
+        if (state == State.OPEN && clock.getAsLong() - openedAt < openNanos) {
+            throw unavailable();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        acquire();
+        long start = clock.getAsLong();
+        try {
+            Response response = chain.proceed(chain.request());
+            onResult(response.code() >= 500, clock.getAsLong() - start);
+            return response;
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                // Cancelled by us, such as a hedge that lost: says nothing about Reddit
+                onCancelled();
+            } else {
+                onResult(true, clock.getAsLong() - start);
+            }
+            throw e;
+        }
+    }
+
+    synchronized void acquire() throws RedditUnavailableException {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                metrics.circuitRejected();
+                throw unavailable();
+            }
+            transition(State.HALF_OPEN);
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= trialCalls) {
+                metrics.circuitRejected();
+                throw unavailable();
+            }
+            trialsStarted++;
+        }
+    }
+
+    synchronized void onResult(boolean failed, long latencyNanos) {
+        boolean slow = latencyNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                log.warn("Reddit circuit trial call {}, open again for {} s", failed ? "failed" : "was slow",
+                        TimeUnit.NANOSECONDS.toSeconds(openNanos));
+                open();
+            } else if (++trialsSucceeded >= trialCalls) {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // Started before the breaker opened
+            return;
+        }
+
+        byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        if (recorded == WINDOW) {
+            count(outcomes[next], -1);
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % WINDOW;
+        count(outcome, 1);
+
+        if (recorded >= MIN_CALLS && (failures >= failureRate * recorded || slowCalls >= slowCallRate * recorded)) {
+            log.warn("Reddit circuit open after {} failed and {} slow of the last {} calls, next trial in {} s",
+                    failures, slowCalls, recorded, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+            open();
+        }
+    }
+
+    synchronized void onCancelled() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+            trialsStarted--;
+        }
+    }
+
+    private void count(byte outcome, int delta) {
+        if ((outcome & FAILED) != 0) failures += delta;
+        if ((outcome & SLOW) != 0) slowCalls += delta;
+    }
+
+    private void open() {
+        openedAt = clock.getAsLong();
+        transition(State.OPEN);
+    }
+
+    private void close() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        transition(State.CLOSED);
+    }
+
+    private void transition(State to) {
+        if (to != State.OPEN) {
+            log.info("Reddit circuit {}", to.name().toLowerCase(Locale.ENGLISH));
+        }
+        state = to;
+        metrics.circuitTransition(to.name());
+    }
+
+    private RedditUnavailableException unavailable() {
+        long waitNanos = state == State.OPEN ? openNanos - (clock.getAsLong() - openedAt) : 0;
+        // Rounded up, and at least a second while the trial calls run
+        return new RedditUnavailableException(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000));
+    }
+}
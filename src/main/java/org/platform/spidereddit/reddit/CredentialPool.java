@@ -0,0 +1,265 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.platform.spidereddit.reddit.RedditAuthService.AccessToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads Reddit API calls over several OAuth apps, each with its own rate limit. Installed as
+ * an interceptor on the API client, it sends every call with the token of the credential that
+ * has the most budget left, as reported by Reddit's X-Ratelimit headers. Tokens are cached
+ * until shortly before they expire. A credential answered with 429 rests until its limit
+ * resets, and one whose credentials or fresh token are refused (401) rests for a while, so its
+ * calls move to the others. A token request that fails for any other reason, such as a timeout
+ * or a 5xx, fails the call without resting anyone. When every credential rests, calls go out
+ * as they are and callers back off.
+ */
+public class CredentialPool implements Interceptor {
+
+    // Budget assumed until Reddit reports one: its limit is 600 calls per 10-minute window
+    static final double DEFAULT_REMAINING = 600;
+
+    private static final long EXPIRY_MARGIN_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long RATE_LIMITED_REST_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long UNAUTHORIZED_REST_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    public record Credential(String clientId, String clientSecret, String username, String password) {
+    }
+
+    private final Logger log = LoggerFactory.getLogger(CredentialPool.class);
+    private final List<Member> members;
+    private final CrawlMetrics metrics;
+    private final LongSupplier clock;
+
+    public CredentialPool(List<RedditAuthService> auths, CrawlMetrics metrics) {
+        this(auths, metrics, System::nanoTime);
+    }
+
+    CredentialPool(List<RedditAuthService> auths, CrawlMetrics metrics, LongSupplier clock) {
+        if (auths.isEmpty()) {
+            throw new IllegalArgumentException("No Reddit credentials configured");
+        }
+        this.metrics = metrics;
+        this.clock = clock;
+        this.members = IntStream.range(0, auths.size())
+                .mapToObj(i -> new Member(i + 1, auths.get(i)))
+                .toList();
+    }
+
+    /**
+     * Creates a pool fetching its tokens from tokenUrl through tokenClient, which must not
+     * have the pool installed.
+     */
+    public static CredentialPool of(List<Credential> credentials, OkHttpClient tokenClient, ObjectMapper objectMapper,
+                                    String tokenUrl, CrawlMetrics metrics) {
+        return new CredentialPool(credentials.stream()
+                .map(credential -> new RedditAuthService(credential.clientId(), credential.clientSecret(),
+                        credential.username(), credential.password(), tokenClient, objectMapper, tokenUrl))
+                .toList(), metrics);
+    }
+
+    /**
+     * Returns a valid token of a credential in rotation, fetching one if needed. Fails only if
+     * no credential can get a token.
+     */
+    public String token() throws IOException {
+        IOException failure = new IOException("No Reddit credential in rotation");
+        Set<Member> tried = new HashSet<>();
+        for (Member member = pick(tried); member != null; member = pick(tried)) {
+            tried.add(member);
+            try {
+                return member.token();
+            } catch (CredentialRejectedException e) {
+                // Other failures, an open circuit included, are Reddit's and propagate
+                rest(member, "token", UNAUTHORIZED_REST_NANOS);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Returns the number of credentials in rotation, not resting after a 429 or 401.
+     */
+    public int activeCount() {
+        long now = clock.getAsLong();
+        synchronized (this) {
+            return (int) members.stream().filter(member -> member.restingUntil - now <= 0).count();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Set<Member> tried = new HashSet<>();
+        Response response = null;
+        for (Member member = pick(tried); member != null; member = pick(tried)) {
+            tried.add(member);
+            String token;
+            try {
+                token = member.token();
+            } catch (CredentialRejectedException e) {
+                rest(member, "token", UNAUTHORIZED_REST_NANOS);
+                continue;
+            } catch (IOException e) {
+                if (response != null) {
+                    response.close();
+                }
+                throw e;
+            }
+
+            if (response != null) {
+                response.close();
+            }
+            response = proceed(chain, request, member, token);
+            if (response.code() == 401) {
+                // Tokens can be revoked before they expire: retry once with a fresh one before resting
+                member.invalidate(token);
+                try {
+                    token = member.token();
+                } catch (CredentialRejectedException e) {
+                    rest(member, "token", UNAUTHORIZED_REST_NANOS);
+                    continue;
+                } catch (IOException e) {
+                    response.close();
+                    throw e;
+                }
+                response.close();
+                response = proceed(chain, request, member, token);
+                if (response.code() == 401) {
+                    rest(member, "unauthorized", UNAUTHORIZED_REST_NANOS);
+                    continue;
+                }
+            }
+            if (response.code() == 429) {
+                rest(member, "rate_limited", resetNanos(response, RATE_LIMITED_REST_NANOS));
+                continue;
+            }
+            return response;
+        }
+        // Every credential rests: answer with the last refusal, or send the call with the caller's token
+        return response != null ? response : chain.proceed(request);
+    }
+
+    private Response proceed(Chain chain, Request request, Member member, String token) throws IOException {
+        synchronized (this) {
+            member.inFlight++;
+        }
+        try {
+            Response response = chain.proceed(request.newBuilder()
+                    .header("Authorization", "Bearer " + token)
+                    .build());
+            updateBudget(member, response);
+            return response;
+        } finally {
+            synchronized (this) {
+                member.inFlight--;
+            }
+        }
+    }
+
+    // X-Ratelimit-Remaining: calls left in the window, X-Ratelimit-Reset: seconds until it ends
+    private void updateBudget(Member member, Response response) {
+        String remaining = response.header("X-Ratelimit-Remaining");
+        if (remaining == null) {
+            return;
+        }
+        try {
+            double left = Double.parseDouble(remaining);
+            long resetAt = clock.getAsLong() + resetNanos(response, 0);
+            synchronized (this) {
+                member.remaining = left;
+                member.resetAt = resetAt;
+            }
+        } catch (NumberFormatException e) {
+            // Not a budget we can use; keep the previous one
+        }
+    }
+
+    private static long resetNanos(Response response, long fallback) {
+        try {
+            String reset = response.header("X-Ratelimit-Reset");
+            return reset == null ? fallback : TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(reset) * 1000));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    // The credential in rotation with the most budget left, counting the calls it has in flight
+    private synchronized Member pick(Set<Member> tried) {
+        long now = clock.getAsLong();
+        return members.stream()
+                .filter(member -> !tried.contains(member) && member.restingUntil - now <= 0)
+                .max(Comparator.comparingDouble(member -> member.budget(now)))
+                .orElse(null);
+    }
+
+    private void rest(Member member, String reason, long nanos) {
+        synchronized (this) {
+            member.restingUntil = clock.getAsLong() + nanos;
+        }
+        metrics.credentialRested(reason);
+        log.warn("Reddit credential #{} out of rotation for {} s: {}", member.number,
+                TimeUnit.NANOSECONDS.toSeconds(nanos), reason);
+    }
+
+    private final class Member {
+
+        private final int number;
+        private final RedditAuthService auth;
+
+        // Guarded by the member
+        private String token;
+        private long expiresAt;
+
+        // Guarded by the pool
+        private double remaining = DEFAULT_REMAINING;
+        private long resetAt;
+        private long restingUntil;
+        private int inFlight;
+
+        private Member(int number, RedditAuthService auth) {
+            this.number = number;
+            this.auth = auth;
+            long now = clock.getAsLong();
+            this.resetAt = now;
+            this.restingUntil = now;
+        }
+
+        private synchronized String token() throws IOException {
+            long now = clock.getAsLong();
+            if (token == null || now - expiresAt >= 0) {
+                AccessToken fetched = auth.fetchToken();
+                token = fetched.value();
+                expiresAt = now + TimeUnit.SECONDS.toNanos(fetched.expiresInSeconds()) - EXPIRY_MARGIN_NANOS;
+            }
+            return token;
+        }
+
+        private synchronized void invalidate(String refused) {
+            if (refused.equals(token)) {
+                token = null;
+            }
+        }
+
+        // Once the window ends, Reddit restores the full budget
+        private double budget(long now) {
+            return (now - resetAt >= 0 ? DEFAULT_REMAINING : remaining) - inFlight;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.platform.spidereddit.reddit;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Reddit's token endpoint refuses an app's credentials, as opposed to failing to
+ * answer. Only this takes the credential out of a {@link CredentialPool}'s rotation.
+ */
+public class CredentialRejectedException extends IOException {
+
+    public CredentialRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,263 @@
+package org.platform.spidereddit.reddit;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Hedges slow Reddit reads. Installed first on the API client, it sends every GET through the
+ * client it was given, and if no answer arrived within the p95 latency of recent reads, sends a
+ * duplicate and returns whichever answers first. The duplicate goes through the credential pool
+ * like any call, so it is counted against its credential's X-Ratelimit budget. That is the only
+ * budget it is charged to: the scheduler's requestsPerMinute starts user fetches and doesn't see
+ * their duplicates, so hedges are capped at maxHedgeRatio of the reads instead. A primary that
+ * loses is left to finish within its call timeout, so the latency the hedge saved is measured
+ * rather than guessed. Async calls are never hedged: waiting for the race would block a
+ * dispatcher thread, and the racers would bypass the dispatcher's in-flight limit.
+ */
+public class HedgingInterceptor implements Interceptor, AutoCloseable {
+
+    // Latencies of the most recent reads the percentile is taken over
+    static final int WINDOW = 256;
+    // Reads measured before the first hedge; until then the delay is unknown
+    static final int MIN_SAMPLES = 20;
+    static final double PERCENTILE = 0.95;
+    // The percentile is recomputed every this many reads rather than on each one
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final Call.Factory calls;
+    private final double maxHedgeRatio;
+    private final CrawlMetrics metrics;
+    private final ExecutorService racers = Executors.newCachedThreadPool(daemon("reddit-hedge"));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemon("reddit-hedge-timer"));
+
+    // Guarded by this
+    private final long[] latencies = new long[WINDOW];
+    private long samples;
+    private long delayNanos;
+    private long reads;
+    private long hedges;
+
+    /**
+     * @param calls         client the reads and their duplicates are sent with, without this interceptor
+     * @param maxHedgeRatio most duplicates sent per read, such as 0.05
+     */
+    public HedgingInterceptor(Call.Factory calls, double maxHedgeRatio, CrawlMetrics metrics) {
+        if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+            throw new IllegalArgumentException("Invalid hedge ratio: " + maxHedgeRatio);
+        }
+        this.calls = calls;
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a client sending its calls through api, hedging the reads.
+     */
+    public static OkHttpClient install(OkHttpClient api, double maxHedgeRatio, CrawlMetrics metrics) {
+        HedgingInterceptor hedging = new HedgingInterceptor(api, maxHedgeRatio, metrics);
+        metrics.registerHedging(hedging);
+        OkHttpClient.Builder hedged = api.newBuilder();
+        hedged.interceptors().add(0, hedging);
+        return hedged.build();
+    }
+
+    /**
+     * Returns how long a read runs before it is hedged, or 0 until enough reads were measured.
+     */
+    public synchronized long delayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Returns the share of reads that were hedged.
+     */
+    public synchronized double hedgeRate() {
+        return reads == 0 ? 0 : hedges / (double) reads;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        // An async call would hold a dispatcher thread while its racers ran outside the dispatcher's limits
+        if (!request.method().equals("GET") || AsyncCalls.isEnqueued(request)) {
+            return chain.proceed(request);
+        }
+        long delay;
+        synchronized (this) {
+            reads++;
+            delay = delayNanos;
+        }
+        if (delay == 0) {
+            long start = System.nanoTime();
+            Response response = calls.newCall(request).execute();
+            if (response.isSuccessful()) {
+                onSample(System.nanoTime() - start);
+            }
+            return response;
+        }
+
+        Race race = new Race(request);
+        racers.execute(() -> race.run(race.primary, false));
+        ScheduledFuture<?> hedge = timer.schedule(race::hedge, delay, TimeUnit.NANOSECONDS);
+        try {
+            return race.winner.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            race.cancel();
+            race.winner.thenAccept(Response::close);
+            throw new InterruptedIOException("Interrupted waiting for " + request.url());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            hedge.cancel(false);
+        }
+    }
+
+    synchronized void onSample(long latencyNanos) {
+        latencies[(int) (samples++ % WINDOW)] = latencyNanos;
+        if (samples >= MIN_SAMPLES && samples % RECOMPUTE_EVERY == MIN_SAMPLES % RECOMPUTE_EVERY) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+            Arrays.sort(window);
+            delayNanos = window[(int) Math.ceil(PERCENTILE * window.length) - 1];
+        }
+    }
+
+    // Sending a duplicate counts against the budget even if it is never answered
+    private synchronized boolean takeHedge() {
+        if (hedges + 1 > maxHedgeRatio * reads) {
+            return false;
+        }
+        hedges++;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        racers.shutdownNow();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One read and, once it is slow, its duplicate. The first answer wins; a failure only fails
+     * the read once no other call can answer it.
+     */
+    private final class Race {
+
+        private final Request request;
+        private final Call primary;
+        private final long start = System.nanoTime();
+        private final CompletableFuture<Response> winner = new CompletableFuture<>();
+
+        // Guarded by the race
+        private Call duplicate;
+        private boolean answered;
+        private int running = 1;
+        private long hedgeWonAfter = -1;
+
+        private Race(Request request) {
+            this.request = request;
+            this.primary = calls.newCall(request);
+        }
+
+        private synchronized void cancel() {
+            primary.cancel();
+            if (duplicate != null) {
+                duplicate.cancel();
+            }
+        }
+
+        private void hedge() {
+            Call call;
+            synchronized (this) {
+                if (answered || !takeHedge()) {
+                    return;
+                }
+                call = duplicate = calls.newCall(request);
+                running++;
+            }
+            racers.execute(() -> run(call, true));
+        }
+
+        private void run(Call call, boolean isHedge) {
+            Response response;
+            try {
+                response = call.execute();
+            } catch (IOException | RuntimeException e) {
+                lost(isHedge, e);
+                return;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (!isHedge && response.isSuccessful()) {
+                onSample(elapsed);
+            }
+            boolean won;
+            Call loser = null;
+            synchronized (this) {
+                won = !answered;
+                if (won) {
+                    answered = true;
+                    running--;
+                    loser = isHedge ? null : duplicate;
+                    if (isHedge) {
+                        hedgeWonAfter = elapsed;
+                    }
+                }
+            }
+            if (!won) {
+                response.close();
+                lost(isHedge, null);
+                return;
+            }
+            // Counted before the caller is released, so it already sees the win
+            if (isHedge) {
+                metrics.hedged(true);
+            }
+            winner.complete(response);
+            if (loser != null) {
+                // It was sent and charged already, but cancelling frees its connection
+                loser.cancel();
+            }
+        }
+
+        private void lost(boolean isHedge, Exception failure) {
+            long wonAfter;
+            synchronized (this) {
+                // Failed under the lock, so no duplicate is sent for a read that already failed
+                if (--running == 0 && failure != null && !answered) {
+                    answered = true;
+                    winner.completeExceptionally(failure);
+                }
+                wonAfter = hedgeWonAfter;
+            }
+            if (isHedge) {
+                metrics.hedged(false);
+            } else if (wonAfter >= 0) {
+                metrics.hedgeSaved(System.nanoTime() - start - wonAfter);
+            }
+        }
+    }
+}
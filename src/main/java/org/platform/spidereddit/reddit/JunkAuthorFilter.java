@@ -0,0 +1,71 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Skips commenters whose history would add nothing but noise: known bots, accounts named
+ * like bots, suspended accounts, and authors whose every comment in the thread reads like
+ * a bot's. Only fields already in the comments are used, so filtering costs no calls.
+ */
+public class JunkAuthorFilter implements AuthorFilter {
+
+    public static final Set<String> KNOWN_BOTS = Set.of(
+            "automoderator", "remindmebot", "sneakpeekbot", "wikitextbot", "repostsleuthbot",
+            "savevideo", "savevideobot", "vredditdownloader", "amputatorbot", "linkifybot",
+            "haikusbot", "gifreversingbot", "tweetposter", "b0trank", "nice-scores", "repliesnice",
+            "converter-bot", "timezone_bot", "totesmessenger", "tldrbot", "autotldr");
+
+    // RemindMeBot, timezone_bot, converter-bot: matched on the name as the author wrote it
+    private static final Pattern BOT_NAME = Pattern.compile("(?:[-_][Bb][Oo][Tt]|[a-z0-9]Bot)$");
+
+    private static final Pattern BOT_FLAIR = Pattern.compile("\\bbot\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Set<String> bots;
+
+    public JunkAuthorFilter() {
+        this(Set.of());
+    }
+
+    /**
+     * Filters the given bot accounts as well as the known ones.
+     */
+    public JunkAuthorFilter(Set<String> extraBots) {
+        this.bots = new HashSet<>(KNOWN_BOTS);
+        extraBots.forEach(bot -> bots.add(bot.trim().toLowerCase(Locale.ENGLISH)));
+    }
+
+    @Override
+    public String reject(String author, List<JsonNode> comments) {
+        if (bots.contains(author)) {
+            return "bot";
+        }
+        if (comments.stream().anyMatch(comment -> BOT_NAME.matcher(comment.path("author").asText()).find())) {
+            return "bot";
+        }
+        if (!comments.isEmpty() && comments.stream().allMatch(JunkAuthorFilter::suspended)) {
+            return "suspended";
+        }
+        if (!comments.isEmpty() && comments.stream().allMatch(JunkAuthorFilter::botLike)) {
+            return "bot_comment";
+        }
+        return null;
+    }
+
+    // Reddit leaves author_fullname out of the comments of suspended accounts
+    private static boolean suspended(JsonNode comment) {
+        return comment.has("body") && !comment.path("author_fullname").isTextual();
+    }
+
+    // Distinguished or stickied comments are mod notices, mostly posted by bots
+    private static boolean botLike(JsonNode comment) {
+        return comment.path("distinguished").isTextual()
+                || comment.path("stickied").asBoolean(false)
+                || BOT_FLAIR.matcher(comment.path("author_flair_text").asText("")).find();
+    }
+}
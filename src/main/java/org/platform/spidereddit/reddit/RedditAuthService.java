@@ -9,37 +9,47 @@ import java.util.Base64;
 
 public class RedditAuthService {
 
-    private static final String TOKEN_URL = "https://www.reddit.com/api/v1/access_token";
-
     private final String clientId;
     private final String clientSecret;
     private final String username;
     private final String password;
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final String tokenUrl;
 
     // Constructor for production use
     public RedditAuthService(String clientId, String clientSecret, String username, String password) {
-        this.clientId = clientId;
-        this.clientSecret = clientSecret;
-        this.username = username;
-        this.password = password;
-        this.httpClient = new OkHttpClient();
-        this.objectMapper = new ObjectMapper();
+        this(clientId, clientSecret, username, password, new OkHttpClient(), new ObjectMapper());
     }
 
     // Constructor for testing with dependency injection
     public RedditAuthService(String clientId, String clientSecret, String username, String password, 
                            OkHttpClient httpClient, ObjectMapper objectMapper) {
+        this(clientId, clientSecret, username, password, httpClient, objectMapper, RedditConfig.TOKEN_URL);
+    }
+
+    public RedditAuthService(String clientId, String clientSecret, String username, String password,
+                             OkHttpClient httpClient, ObjectMapper objectMapper, String tokenUrl) {
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.username = username;
         this.password = password;
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
+        this.tokenUrl = tokenUrl;
+    }
+
+    /**
+     * A bearer token and how long Reddit accepts it.
+     */
+    public record AccessToken(String value, long expiresInSeconds) {
     }
 
     public String fetchAccessToken() throws IOException {
+        return fetchToken().value();
+    }
+
+    public AccessToken fetchToken() throws IOException {
         String credentials = clientId + ":" + clientSecret;
         String basicAuth = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes());
 
@@ -50,19 +60,26 @@ public class RedditAuthService {
                 .build();
 
         Request request = new Request.Builder()
-                .url(TOKEN_URL)
+                .url(tokenUrl)
                 .header("Authorization", basicAuth)
                 .header("User-Agent", RedditConfig.USER_AGENT)
                 .post(formBody)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
+            // Bad app credentials are a 401; a bad password is a 400 or a 200 with "error": "invalid_grant"
+            if (response.code() == 400 || response.code() == 401 || response.code() == 403) {
+                throw new CredentialRejectedException("OAuth token request refused: " + response.code());
+            }
             if (!response.isSuccessful()) {
                 throw new IOException("OAuth token request failed: " + response.code());
             }
 
             JsonNode json = objectMapper.readTree(response.body().string());
-            return json.get("access_token").asText();
+            if (!json.hasNonNull("access_token")) {
+                throw new CredentialRejectedException("OAuth token request refused: " + json.path("error").asText());
+            }
+            return new AccessToken(json.get("access_token").asText(), json.path("expires_in").asLong(3600));
         }
     }
 }
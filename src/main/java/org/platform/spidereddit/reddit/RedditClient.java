@@ -20,33 +20,85 @@ import org.slf4j.LoggerFactory;
 public class RedditClient {
 
     private final Logger log = LoggerFactory.getLogger(UserHistoryFetcher.class);
-    private static final String BASE_URL = "https://oauth.reddit.com/comments/";
+
+    private static final Set<String> SORTS = Set.of("hot", "new", "top", "rising", "controversial");
+    private static final Set<String> TIME_RANGES = Set.of("hour", "day", "week", "month", "year", "all");
 
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final String accessToken;
+    private final String baseUrl;
 
     public RedditClient(OkHttpClient httpClient, ObjectMapper objectMapper, String accessToken) {
+        this(httpClient, objectMapper, accessToken, RedditConfig.API_BASE_URL);
+    }
+
+    public RedditClient(OkHttpClient httpClient, ObjectMapper objectMapper, String accessToken, String baseUrl) {
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
         this.accessToken = accessToken;
+        this.baseUrl = baseUrl;
     }
 
-    public String extractPostId(String url) {
-        String[] parts = url.split("/");
+    /**
+     * Returns the normalized id of the post a URL points to: the segment after /comments/,
+     * lowercased and without any query or fragment, so every URL of a post maps to one id.
+     */
+    public static String extractPostId(String url) {
+        String[] parts = url.split("[?#]", 2)[0].split("/");
         return IntStream.range(0, parts.length - 1)
-                .filter(i -> parts[i].equals("comments"))
-                .mapToObj(i -> parts[i + 1])
+                .filter(i -> parts[i].equals("comments") && !parts[i + 1].isEmpty())
+                .mapToObj(i -> parts[i + 1].toLowerCase(Locale.ENGLISH))
                 .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("Invalid Reddit post URL: " + url));
     }
 
-    public Set<String> getAllCommenters(String postId, String accessToken) throws IOException {
-        return getAllCommenters(postId, 1, accessToken);
+    /**
+     * Returns the API path of a subreddit listing URL such as /r/java/top/?t=week: the subreddit,
+     * the sort (hot when absent) and, for top and controversial, the time range.
+     */
+    public static String listingPath(String url) {
+        String[] pathAndQuery = url.split("#", 2)[0].split("\\?", 2);
+        String[] parts = pathAndQuery[0].split("/");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if (!parts[i].equals("r") || parts[i + 1].isEmpty()) continue;
+
+            String subreddit = parts[i + 1].toLowerCase(Locale.ENGLISH);
+            String sort = i + 2 < parts.length ? parts[i + 2].toLowerCase(Locale.ENGLISH) : "hot";
+            if (!SORTS.contains(sort)) {
+                throw new IllegalArgumentException("Unsupported subreddit listing: " + url);
+            }
+
+            String path = "/r/" + subreddit + "/" + sort + ".json";
+            String time = pathAndQuery.length > 1 ? queryParameter(pathAndQuery[1], "t") : null;
+            if (time != null && (sort.equals("top") || sort.equals("controversial"))) {
+                if (!TIME_RANGES.contains(time)) {
+                    throw new IllegalArgumentException("Unsupported time range: " + time);
+                }
+                path += "?t=" + time;
+            }
+            return path;
+        }
+        throw new IllegalArgumentException("Invalid subreddit URL: " + url);
+    }
+
+    private static String queryParameter(String query, String name) {
+        return Arrays.stream(query.split("&"))
+                .filter(parameter -> parameter.startsWith(name + "="))
+                .map(parameter -> parameter.substring(name.length() + 1).toLowerCase(Locale.ENGLISH))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Returns the ids of up to limit posts of a subreddit listing, from {@link #listingPath}.
+     */
+    public List<String> getPostIds(String listingPath, int limit) throws IOException {
+        return getPostIds(listingPath, limit, 1);
     }
 
-    private Set<String> getAllCommenters(String postId, int retryCount, String accessToken) throws IOException {
-        String url = BASE_URL + postId + ".json";
+    private List<String> getPostIds(String listingPath, int limit, int retryCount) throws IOException {
+        String url = baseUrl + listingPath + (listingPath.contains("?") ? "&" : "?") + "limit=" + limit;
 
         Request request = new Request.Builder()
                 .url(url)
@@ -57,12 +109,12 @@ public class RedditClient {
         try (Response response = httpClient.newCall(request).execute()) {
             if (response.code() == 429) {
                 if (retryCount >= 5) {
-                    log.error("Too many retries. Skipping post: " + postId);
-                    return Set.of(); // give up
+                    log.error("Too many retries. Skipping listing: " + listingPath);
+                    return List.of();
                 }
                 log.error("Rate limited. Retrying in 2 seconds...");
                 Thread.sleep(2000);
-                return getAllCommenters(postId, retryCount + 1, accessToken); // try again
+                return getPostIds(listingPath, limit, retryCount + 1);
             }
 
             if (!response.isSuccessful()) {
@@ -70,31 +122,104 @@ public class RedditClient {
             }
 
             ResponseBody body = response.body();
-            if (body == null) return Set.of();
+            if (body == null) return List.of();
+
+            return postIds(objectMapper.readTree(body.string()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+    }
+
+    /**
+     * Collects the lowercased post ids of a subreddit listing response.
+     */
+    static List<String> postIds(JsonNode listing) {
+        return StreamSupport.stream(listing.path("data").path("children").spliterator(), false)
+                .map(child -> child.path("data").path("id").asText(""))
+                .filter(id -> !id.isEmpty())
+                .map(id -> id.toLowerCase(Locale.ENGLISH))
+                .toList();
+    }
+
+    public Set<String> getAllCommenters(String postId, String accessToken) throws IOException {
+        return getComments(postId, 1, accessToken).keySet();
+    }
+
+    /**
+     * Returns the comments of a post grouped by lowercased author, so a filter can judge an
+     * author by what they wrote in the thread before their history is fetched.
+     */
+    public Map<String, List<JsonNode>> getComments(String postId) throws IOException {
+        return getComments(postId, 1, accessToken);
+    }
 
-            JsonNode root = objectMapper.readTree(body.string());
-            JsonNode commentTree = root.get(1).get("data").get("children");
+    private Map<String, List<JsonNode>> getComments(String postId, int retryCount, String accessToken)
+            throws IOException {
+        String url = baseUrl + "/comments/" + postId + ".json";
 
-            Set<String> usernames = new HashSet<>();
-            for (JsonNode commentNode : commentTree) {
-                collectAuthors(commentNode, usernames);
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("User-Agent", RedditConfig.USER_AGENT)
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() == 429) {
+                if (retryCount >= 5) {
+                    log.error("Too many retries. Skipping post: " + postId);
+                    return Map.of(); // give up
+                }
+                log.error("Rate limited. Retrying in 2 seconds...");
+                Thread.sleep(2000);
+                return getComments(postId, retryCount + 1, accessToken); // try again
             }
-            return usernames;
+
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected code " + response);
+            }
+
+            ResponseBody body = response.body();
+            if (body == null) return Map.of();
+
+            return comments(objectMapper.readTree(body.string()));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            return Set.of();
+            return Map.of();
         }
     }
 
 
-    private void collectAuthors(JsonNode commentNode, Set<String> usernames) {
-        Optional.ofNullable(commentNode.get("data"))
-                .map(data -> data.get("author"))
+    /**
+     * Collects the lowercased authors of every comment in a /comments/{id} response, at any depth.
+     */
+    static Set<String> commenters(JsonNode root) {
+        return comments(root).keySet();
+    }
+
+    /**
+     * Collects every comment in a /comments/{id} response, at any depth, by lowercased author.
+     * Comments of deleted accounts are left out.
+     */
+    static Map<String, List<JsonNode>> comments(JsonNode root) {
+        JsonNode commentTree = root.get(1).get("data").get("children");
+
+        Map<String, List<JsonNode>> comments = new HashMap<>();
+        for (JsonNode commentNode : commentTree) {
+            collectAuthors(commentNode, comments);
+        }
+        return comments;
+    }
+
+    private static void collectAuthors(JsonNode commentNode, Map<String, List<JsonNode>> comments) {
+        JsonNode data = commentNode.get("data");
+        Optional.ofNullable(data)
+                .map(d -> d.get("author"))
                 .filter(JsonNode::isTextual)
                 .map(JsonNode::asText)
                 .map(String::toLowerCase)
-                .filter(author -> !author.equals("[deleted") && !author.equals("null"))
-                .ifPresent(usernames::add);
+                .filter(author -> !author.equals("[deleted]") && !author.equals("null"))
+                .ifPresent(author -> comments.computeIfAbsent(author, ignored -> new ArrayList<>()).add(data));
 
         Optional.ofNullable(commentNode.get("data"))
                 .map(d -> d.get("replies"))
@@ -103,7 +228,7 @@ public class RedditClient {
                 .filter(JsonNode::isArray)
                 .ifPresent(children -> {
                     StreamSupport.stream(children.spliterator(), false)
-                            .forEach(child -> collectAuthors(child, usernames));
+                            .forEach(child -> collectAuthors(child, comments));
                 });
     }
 }
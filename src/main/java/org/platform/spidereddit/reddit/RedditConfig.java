@@ -2,6 +2,9 @@ package org.platform.spidereddit.reddit;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class RedditConfig {
     private static final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
 
@@ -10,4 +13,23 @@ public class RedditConfig {
     public static final String USERNAME = dotenv.get("REDDIT_USERNAME");
     public static final String PASSWORD = dotenv.get("REDDIT_PASSWORD");
     public static final String USER_AGENT = dotenv.get("REDDIT_USER_AGENT");
+
+    // Overridable to point the crawler at a local stand-in server
+    public static final String API_BASE_URL = dotenv.get("REDDIT_API_BASE_URL", "https://oauth.reddit.com");
+    public static final String TOKEN_URL = dotenv.get("REDDIT_TOKEN_URL", "https://www.reddit.com/api/v1/access_token");
+
+    /**
+     * The OAuth apps to spread calls over: the one above, then one per REDDIT_CLIENT_ID_2,
+     * REDDIT_CLIENT_ID_3 and so on, with the matching _2, _3 secret, username and password.
+     */
+    public static List<CredentialPool.Credential> credentials() {
+        List<CredentialPool.Credential> credentials = new ArrayList<>();
+        credentials.add(new CredentialPool.Credential(CLIENT_ID, CLIENT_SECRET, USERNAME, PASSWORD));
+        for (int i = 2; dotenv.get("REDDIT_CLIENT_ID_" + i) != null; i++) {
+            credentials.add(new CredentialPool.Credential(dotenv.get("REDDIT_CLIENT_ID_" + i),
+                    dotenv.get("REDDIT_CLIENT_SECRET_" + i), dotenv.get("REDDIT_USERNAME_" + i),
+                    dotenv.get("REDDIT_PASSWORD_" + i)));
+        }
+        return credentials;
+    }
 }
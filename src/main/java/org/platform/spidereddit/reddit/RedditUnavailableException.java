@@ -0,0 +1,20 @@
+package org.platform.spidereddit.reddit;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling Reddit while the {@link CircuitBreaker} is open.
+ */
+public class RedditUnavailableException extends IOException {
+
+    private final long retryAfterSeconds;
+
+    public RedditUnavailableException(long retryAfterSeconds) {
+        super("Reddit API unavailable, retry in " + retryAfterSeconds + " s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
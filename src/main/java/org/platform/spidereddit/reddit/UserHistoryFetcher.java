@@ -5,6 +5,12 @@ import okhttp3.Request;
 import okhttp3.Response;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.platform.spidereddit.metrics.CrawlTrace;
+import org.platform.spidereddit.metrics.CrawlTrace.Span;
+import org.platform.spidereddit.text.NearDuplicateDetector;
+import org.platform.spidereddit.text.NearDuplicateDetector.Duplicate;
 import org.platform.spidereddit.text.WordGraph;
 import org.platform.spidereddit.utility.POSFilter;
 import org.slf4j.Logger;
@@ -12,13 +18,21 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
 
 public class UserHistoryFetcher implements Runnable {
 
+    private static final long RATE_LIMIT_BACKOFF_MS = 2000;
+
     private final Logger log = LoggerFactory.getLogger(UserHistoryFetcher.class);
     private final String username;
     private final OkHttpClient httpClient;
@@ -26,119 +40,287 @@ public class UserHistoryFetcher implements Runnable {
     private static final CharArraySet STOP_WORDS = EnglishAnalyzer.getDefaultStopSet();
     private final WordGraph wordGraph;
     private final String accessToken;
-
+    private final String baseUrl;
+    private final CrawlMetrics metrics;
+    private final CrawlTrace trace;
+    // Receives the ids of the posts the user commented on, for crawls that expand beyond one post
+    private final Consumer<List<String>> postsCommented;
+    // Shared by the users of a crawl, so a comment pasted by many of them is tagged once at most
+    private final NearDuplicateDetector duplicates;
+    // Comments of this user that nearly duplicate earlier ones, set once the comments listing is read
+    private volatile List<Duplicate> duplicateComments = List.of();
 
     public UserHistoryFetcher(String username, WordGraph wordGraph, String accessToken) {
+        this(username, wordGraph, accessToken, new OkHttpClient(), RedditConfig.API_BASE_URL, CrawlMetrics.noop(),
+                CrawlTrace.NONE);
+    }
+
+    public UserHistoryFetcher(String username, WordGraph wordGraph, String accessToken,
+                              OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace) {
+        this(username, wordGraph, accessToken, httpClient, baseUrl, metrics, trace, posts -> {
+        });
+    }
+
+    public UserHistoryFetcher(String username, WordGraph wordGraph, String accessToken,
+                              OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace,
+                              Consumer<List<String>> postsCommented) {
+        this(username, wordGraph, accessToken, httpClient, baseUrl, metrics, trace, postsCommented,
+                NearDuplicateDetector.NONE);
+    }
+
+    public UserHistoryFetcher(String username, WordGraph wordGraph, String accessToken,
+                              OkHttpClient httpClient, String baseUrl, CrawlMetrics metrics, CrawlTrace trace,
+                              Consumer<List<String>> postsCommented, NearDuplicateDetector duplicates) {
         this.username = username;
-        this.httpClient = new OkHttpClient();
+        this.httpClient = httpClient;
         this.objectMapper = new ObjectMapper();
         this.wordGraph = wordGraph;
         this.accessToken = accessToken;
+        this.baseUrl = baseUrl;
+        this.metrics = metrics;
+        this.trace = trace;
+        this.postsCommented = postsCommented;
+        this.duplicates = duplicates;
     }
 
     @Override
     public void run() {
+        Timer.Sample sample = metrics.start();
+        long start = trace.now();
         try {
-            String commentText = String.join(" ", fetchCommentWords());
-            String postText = String.join(" ", fetchPostWords());
+            recordWords(fetchCommentWords(), fetchPostWords());
+        } catch (IOException e) {
+            log.error("Error fetching data for user {}: {}", username, e.getMessage());
+        } finally {
+            metrics.userProcessed(sample);
+            trace.record(Span.USER, username, start);
+        }
+        log.info("Finished processing user: {}", username);
+    }
 
-            POSFilter filter = new POSFilter(Set.of("NOUN", "ADJ", "VERB")); // nouns, verbs, adjectives
+    /**
+     * Non-blocking variant of {@link #run()}: both listings are requested at once with OkHttp's
+     * async calls, and a 429 is retried after a delay instead of sleeping, so no thread waits
+     * on Reddit. Tagging and merging, the CPU-bound part, run on the given executor. Like
+     * run(), failures are logged and the returned future completes normally.
+     */
+    public CompletableFuture<Void> runAsync(Executor tagging) {
+        Timer.Sample sample = metrics.start();
+        long start = trace.now();
 
-            List<String> commentWords = filter.filter(commentText);
-            List<String> postWords = filter.filter(postText);
+        CompletableFuture<List<String>> comments = fetchAsync(listingRequest("comments"), Span.USER_COMMENTS,
+                this::commentListing);
+        CompletableFuture<List<String>> posts = fetchAsync(listingRequest("submitted"), Span.USER_SUBMITTED,
+                UserHistoryFetcher::postWords);
 
-            List<String> words = new ArrayList<>();
-            words.addAll(commentWords);
-            words.addAll(postWords);
+        return comments.thenAcceptBothAsync(posts, this::recordWords, tagging)
+                .exceptionally(e -> {
+                    log.error("Error fetching data for user {}: {}", username, e.getMessage());
+                    return null;
+                })
+                .whenComplete((ignored, e) -> {
+                    metrics.userProcessed(sample);
+                    trace.record(Span.USER, username, start);
+                    log.info("Finished processing user: {}", username);
+                });
+    }
 
+    /**
+     * POS-filters the user's comment and post tokens and records co-occurrences of the most frequent words.
+     * Comments that nearly duplicate earlier ones in the crawl were left out of the tokens; if the
+     * detector keeps their words, their cluster's words, tagged once per crawl, are added back.
+     */
+    void recordWords(List<String> commentTokens, List<String> postTokens) {
+        String commentText = String.join(" ", commentTokens);
+        String postText = String.join(" ", postTokens);
 
-            Map<String, Integer> frequencyMap = new HashMap<>();
-            for (String word : words) {
-                frequencyMap.put(word, frequencyMap.getOrDefault(word, 0) + 1);
-            }
+        long taggingStart = trace.now();
+        POSFilter filter = new POSFilter(Set.of("NOUN", "ADJ", "VERB")); // nouns, verbs, adjectives
+
+        List<String> commentWords = filter.filter(commentText);
+        List<String> postWords = filter.filter(postText);
+        metrics.tagging(System.nanoTime() - taggingStart);
+        trace.record(Span.TAGGING, username, taggingStart);
 
-            List<String> topWords = frequencyMap.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .limit(500)
-                    .map(Map.Entry::getKey)
-                    .toList();
+        List<String> words = new ArrayList<>();
+        words.addAll(commentWords);
+        words.addAll(postWords);
 
-            if (!topWords.isEmpty()) {
-                wordGraph.recordCoOccurrences(topWords.toArray(new String[0]));
+
+        if (duplicates.keepsWords()) {
+            for (Duplicate duplicate : duplicateComments) {
+                words.addAll(duplicates.words(duplicate,
+                        body -> filter.filter(String.join(" ", tokens(Stream.of(body))))));
             }
-            log.info("Fetched {} words for user: {}", words.size(), username);
+        }
 
-        } catch (IOException e) {
-            log.error("Error fetching data for user {}: {}", username, e.getMessage());
+        Map<String, Integer> frequencyMap = new HashMap<>();
+        for (String word : words) {
+            frequencyMap.put(word, frequencyMap.getOrDefault(word, 0) + 1);
         }
-        log.info("Finished processing user: {}", username);
+
+        List<String> topWords = frequencyMap.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(500)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        if (!topWords.isEmpty()) {
+            long mergeStart = trace.now();
+            wordGraph.recordCoOccurrences(topWords.toArray(new String[0]));
+            metrics.merge(System.nanoTime() - mergeStart);
+            trace.record(Span.MERGE, username, mergeStart);
+        }
+        log.info("Fetched {} words for user: {}", words.size(), username);
     }
 
-    private List<String> fetchCommentWords() throws IOException {
-        String url = "https://oauth.reddit.com/user/" + username + "/comments?limit=25";
+    private CompletableFuture<List<String>> fetchAsync(Request request, Span span,
+                                                       Function<JsonNode, List<String>> words) {
+        long start = trace.now();
+        return AsyncCalls.enqueue(httpClient, request).thenCompose(response -> {
+            // Runs on the dispatcher thread that received the headers, which is where OkHttp expects the body read
+            try (response) {
+                trace.record(span, username, start);
+                if (response.code() == 429) {
+                    log.error("Rate limited while fetching user history. Retrying in 2 seconds...");
+                    return retryLater(request, span, words);
+                }
+
+                if (!response.isSuccessful()) return CompletableFuture.completedFuture(List.of());
+
+                return CompletableFuture.completedFuture(words.apply(objectMapper.readTree(response.body().string())));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private CompletableFuture<List<String>> retryLater(Request request, Span span,
+                                                       Function<JsonNode, List<String>> words) {
+        long backoff = trace.now();
+        Executor delayed = CompletableFuture.delayedExecutor(RATE_LIMIT_BACKOFF_MS, TimeUnit.MILLISECONDS);
+        return CompletableFuture.runAsync(() -> trace.record(Span.BACKOFF, username, backoff), delayed)
+                .thenCompose(ignored -> fetchAsync(request, span, words));
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
+    private Request listingRequest(String listing) {
+        return new Request.Builder()
+                .url(baseUrl + "/user/" + username + "/" + listing + "?limit=25")
                 .header("Authorization", "Bearer " + accessToken)
                 .header("User-Agent", RedditConfig.USER_AGENT)
                 .build();
+    }
+
+    private List<String> fetchCommentWords() throws IOException {
+        Request request = listingRequest("comments");
 
+        long start = trace.now();
         try (Response response = httpClient.newCall(request).execute()) {
+            trace.record(Span.USER_COMMENTS, username, start);
             if (response.code() == 429) {
                 log.error("Rate limited while fetching user history. Retrying in 2 seconds...");
-                Thread.sleep(2000);
+                long backoff = trace.now();
+                Thread.sleep(RATE_LIMIT_BACKOFF_MS);
+                trace.record(Span.BACKOFF, username, backoff);
                 return fetchCommentWords();
             }
 
             if (!response.isSuccessful()) return List.of();
 
-            JsonNode root = objectMapper.readTree(response.body().string());
-            JsonNode children = root.path("data").path("children");
-
-            return StreamSupport.stream(children.spliterator(), false)
-                    .map(child -> child.path("data").path("body").asText(""))
-                    .flatMap(body -> Arrays.stream(body.split("\\W+")))
-                    .map(token -> token.toLowerCase(Locale.ENGLISH))
-                    .filter(token -> !token.isBlank() && !STOP_WORDS.contains(token))
-                    .toList();
+            return commentListing(objectMapper.readTree(response.body().string()));
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
 
     private List<String> fetchPostWords() throws IOException {
-        String url = "https://oauth.reddit.com/user/" + username + "/submitted?limit=25";
-
-        Request request = new Request.Builder()
-                .url(url)
-                .header("Authorization", "Bearer " + accessToken)
-                .header("User-Agent", RedditConfig.USER_AGENT)
-                .build();
+        Request request = listingRequest("submitted");
 
+        long start = trace.now();
         try (Response response = httpClient.newCall(request).execute()) {
+            trace.record(Span.USER_SUBMITTED, username, start);
 
             if (response.code() == 429) {
                 log.error("Rate limited while fetching user history. Retrying in 2 seconds...");
-                Thread.sleep(2000);
+                long backoff = trace.now();
+                Thread.sleep(RATE_LIMIT_BACKOFF_MS);
+                trace.record(Span.BACKOFF, username, backoff);
                 return fetchPostWords();
             }
 
             if (!response.isSuccessful()) return List.of();
 
-            JsonNode root = objectMapper.readTree(response.body().string());
-            JsonNode children = root.path("data").path("children");
-
-            return StreamSupport.stream(children.spliterator(), false)
-                    .flatMap(child -> Arrays.stream(new String[] {
-                            child.path("data").path("title").asText(""),
-                            child.path("data").path("selftext").asText("")
-                    }))
-                    .flatMap(text -> Arrays.stream(text.split("\\W+")))
-                    .map(token -> token.toLowerCase(Locale.ENGLISH))
-                    .filter(token -> !token.isBlank() && !STOP_WORDS.contains(token))
-                    .toList();
+            return postWords(objectMapper.readTree(response.body().string()));
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private List<String> commentListing(JsonNode listing) {
+        postsCommented.accept(commentedPostIds(listing));
+        List<Duplicate> found = new ArrayList<>();
+        List<String> words = commentWords(listing, duplicates, found);
+        duplicateComments = found;
+        metrics.duplicateComments(found.size());
+        return words;
+    }
+
+    /**
+     * Returns the distinct ids of the posts the comments of a /user/{name}/comments listing belong to.
+     */
+    static List<String> commentedPostIds(JsonNode listing) {
+        return StreamSupport.stream(listing.path("data").path("children").spliterator(), false)
+                .map(child -> child.path("data").path("link_id").asText(""))
+                // Fullnames of posts are "t3_" + id
+                .filter(linkId -> linkId.startsWith("t3_") && linkId.length() > 3)
+                .map(linkId -> linkId.substring(3).toLowerCase(Locale.ENGLISH))
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Tokenizes the comment bodies of a /user/{name}/comments listing, dropping stop words.
+     */
+    static List<String> commentWords(JsonNode listing) {
+        return commentWords(listing, NearDuplicateDetector.NONE, new ArrayList<>());
+    }
+
+    /**
+     * Like {@link #commentWords(JsonNode)}, but leaves out the bodies that nearly duplicate one
+     * the detector saw earlier, adding them to found instead.
+     */
+    static List<String> commentWords(JsonNode listing, NearDuplicateDetector duplicates, List<Duplicate> found) {
+        List<String> bodies = new ArrayList<>();
+        for (JsonNode child : listing.path("data").path("children")) {
+            String body = child.path("data").path("body").asText("");
+            Duplicate duplicate = duplicates.check(body);
+            if (duplicate == null) {
+                bodies.add(body);
+            } else {
+                found.add(duplicate);
+            }
+        }
+        return tokens(bodies.stream());
+    }
+
+    /**
+     * Tokenizes the titles and self texts of a /user/{name}/submitted listing, dropping stop words.
+     */
+    static List<String> postWords(JsonNode listing) {
+        JsonNode children = listing.path("data").path("children");
+
+        return tokens(StreamSupport.stream(children.spliterator(), false)
+                .flatMap(child -> Arrays.stream(new String[] {
+                        child.path("data").path("title").asText(""),
+                        child.path("data").path("selftext").asText("")
+                })));
+    }
+
+    private static List<String> tokens(Stream<String> texts) {
+        return texts
+                .flatMap(text -> Arrays.stream(text.split("\\W+")))
+                .map(token -> token.toLowerCase(Locale.ENGLISH))
+                .filter(token -> !token.isBlank() && !STOP_WORDS.contains(token))
+                .toList();
+    }
 }
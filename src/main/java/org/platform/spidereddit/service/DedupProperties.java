@@ -0,0 +1,18 @@
+package org.platform.spidereddit.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * spidereddit.dedup.*: skipping comments that nearly duplicate earlier ones of the same crawl.
+ *
+ * @param threshold   estimated Jaccard similarity from which a comment is a duplicate
+ * @param maxComments distinct comments a crawl remembers
+ * @param keepWords   whether duplicates' words still count, tagged once per group
+ */
+@ConfigurationProperties("spidereddit.dedup")
+public record DedupProperties(@DefaultValue("true") boolean enabled,
+                              @DefaultValue("0.8") double threshold,
+                              @DefaultValue("20000") int maxComments,
+                              @DefaultValue("false") boolean keepWords) {
+}
@@ -0,0 +1,28 @@
+package org.platform.spidereddit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.platform.spidereddit.reddit.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Reports the Reddit circuit breaker as the "reddit" component of /actuator/health: UP while
+ * closed or probing with trial calls, DOWN while open and crawls fail fast.
+ */
+@Component
+@RequiredArgsConstructor
+public class RedditHealthIndicator implements HealthIndicator {
+
+    private final SpideredditService spideredditService;
+
+    @Override
+    public Health health() {
+        CircuitBreaker.State state = spideredditService.getRedditState();
+        return (state == CircuitBreaker.State.OPEN ? Health.down() : Health.up())
+                .withDetail("circuit", state.name().toLowerCase(Locale.ENGLISH))
+                .build();
+    }
+}
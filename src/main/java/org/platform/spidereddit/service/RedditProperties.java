@@ -0,0 +1,36 @@
+package org.platform.spidereddit.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * spidereddit.reddit.*: how calls to Reddit are bounded, hedged and cut off while it is down.
+ *
+ * @param connectTimeoutMs connect timeout of every call
+ * @param readTimeoutMs    longest wait between two reads of a response
+ * @param callTimeoutMs    longest a whole call may take, retries and redirects included
+ */
+@ConfigurationProperties("spidereddit.reddit")
+public record RedditProperties(@DefaultValue("5000") long connectTimeoutMs,
+                               @DefaultValue("15000") long readTimeoutMs,
+                               @DefaultValue("30000") long callTimeoutMs,
+                               @DefaultValue Hedge hedge,
+                               @DefaultValue Circuit circuit) {
+
+    /**
+     * spidereddit.reddit.hedge.*: duplicates of slow reads, at most maxRatio of all reads.
+     */
+    public record Hedge(@DefaultValue("false") boolean enabled,
+                        @DefaultValue("0.05") double maxRatio) {
+    }
+
+    /**
+     * spidereddit.reddit.circuit.*: when the circuit breaker opens, and for how long.
+     */
+    public record Circuit(@DefaultValue("0.5") double failureRate,
+                          @DefaultValue("0.8") double slowCallRate,
+                          @DefaultValue("10000") long slowCallMs,
+                          @DefaultValue("30000") long openMs,
+                          @DefaultValue("3") int trialCalls) {
+    }
+}
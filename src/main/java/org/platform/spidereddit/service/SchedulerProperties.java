@@ -0,0 +1,19 @@
+package org.platform.spidereddit.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * spidereddit.scheduler.*: the fetch slots crawls share.
+ *
+ * @param slots             users fetched at once, or the starting point when adaptive
+ * @param requestsPerMinute calls started per minute across crawls, 0 for no cap
+ * @param adaptive          whether the slots are learned from Reddit's latency, between minSlots and maxSlots
+ */
+@ConfigurationProperties("spidereddit.scheduler")
+public record SchedulerProperties(@DefaultValue("10") int slots,
+                                  @DefaultValue("0") int requestsPerMinute,
+                                  @DefaultValue("true") boolean adaptive,
+                                  @DefaultValue("2") int minSlots,
+                                  @DefaultValue("32") int maxSlots) {
+}
@@ -1,38 +1,584 @@
 package org.platform.spidereddit.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import org.platform.spidereddit.crawler.AdaptiveLimit;
+import org.platform.spidereddit.crawler.CrawlCoalescer;
+import org.platform.spidereddit.crawler.CrawlFrontier;
 import org.platform.spidereddit.crawler.CrawlManager;
-import org.platform.spidereddit.reddit.RedditAuthService;
+import org.platform.spidereddit.crawler.CrawlScheduler;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.platform.spidereddit.metrics.CrawlTrace;
+import org.platform.spidereddit.metrics.CrawlTrace.Span;
+import org.platform.spidereddit.metrics.CrawlTraces;
+import org.platform.spidereddit.metrics.RequestMetricsInterceptor;
+import org.platform.spidereddit.model.BatchCrawlRequest;
+import org.platform.spidereddit.model.CompactGraph;
+import org.platform.spidereddit.model.ExportOptions;
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.SpiderCrawlRequest;
+import org.platform.spidereddit.reddit.AuthorFilter;
+import org.platform.spidereddit.reddit.CircuitBreaker;
+import org.platform.spidereddit.reddit.HedgingInterceptor;
+import org.platform.spidereddit.reddit.JunkAuthorFilter;
+import org.platform.spidereddit.reddit.CredentialPool;
 import org.platform.spidereddit.reddit.RedditClient;
 import org.platform.spidereddit.reddit.RedditConfig;
+import org.platform.spidereddit.text.AssociationMeasure;
+import org.platform.spidereddit.text.CommunityDetector;
+import org.platform.spidereddit.text.GraphDeltaBuffer;
+import org.platform.spidereddit.text.GraphSnapshot;
+import org.platform.spidereddit.text.NearDuplicateDetector;
 import org.platform.spidereddit.text.WordGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class SpideredditService {
 
+    private final Logger log = LoggerFactory.getLogger(SpideredditService.class);
+
     private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private final ScheduledExecutorService streamScheduler = Executors.newSingleThreadScheduledExecutor();
     private final WordGraph wordGraph = new WordGraph();
-    private final OkHttpClient httpClient = new OkHttpClient();
+    private final CommunityDetector communityDetector = new CommunityDetector();
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RedditAuthService auth = new RedditAuthService(RedditConfig.CLIENT_ID, RedditConfig.CLIENT_SECRET,
-            RedditConfig.USERNAME, RedditConfig.PASSWORD);
+    private final CrawlMetrics metrics;
+    private final CrawlTraces traces = new CrawlTraces(100, CrawlTrace.DEFAULT_CAPACITY);
+    private final OkHttpClient httpClient;
+    private final CredentialPool credentials;
+    private final CircuitBreaker circuitBreaker;
+    private final CrawlCoalescer coalescer;
+    private final CrawlScheduler scheduler;
+    private final AuthorFilter authorFilter;
+    private final long streamWindowMillis;
+    private final boolean asyncFetch;
+    // A fresh detector per crawl, shared by its users
+    private final Supplier<NearDuplicateDetector> duplicateDetection;
+
+    public SpideredditService(MeterRegistry meterRegistry,
+                              @Value("${spidereddit.crawl.cache-ttl-ms:600000}") long cacheTtlMillis,
+                              @Value("${spidereddit.stream.window-ms:250}") long streamWindowMillis,
+                              @Value("${spidereddit.crawl.async:false}") boolean asyncFetch,
+                              @Value("${spidereddit.crawl.max-in-flight:64}") int maxInFlight,
+                              @Value("${spidereddit.filter.enabled:true}") boolean filterAuthors,
+                              @Value("${spidereddit.filter.bots:}") Set<String> extraBots,
+                              RedditProperties reddit,
+                              SchedulerProperties schedulerSettings,
+                              DedupProperties dedup) {
+        this.streamWindowMillis = streamWindowMillis;
+        this.authorFilter = filterAuthors ? new JunkAuthorFilter(extraBots) : AuthorFilter.NONE;
+        this.asyncFetch = asyncFetch;
+        this.duplicateDetection = dedup.enabled()
+                ? () -> new NearDuplicateDetector(dedup.threshold(), dedup.maxComments(), dedup.keepWords())
+                : () -> NearDuplicateDetector.NONE;
+        this.metrics = new CrawlMetrics(meterRegistry);
+        this.metrics.registerGraph(wordGraph);
+        this.coalescer = new CrawlCoalescer(TimeUnit.MILLISECONDS.toNanos(cacheTtlMillis));
+        this.metrics.registerCrawlCache(coalescer);
+        // The adaptive limit starts at the configured slots and learns from every API call
+        AdaptiveLimit limit = schedulerSettings.adaptive()
+                ? new AdaptiveLimit(schedulerSettings.slots(), schedulerSettings.minSlots(), schedulerSettings.maxSlots())
+                : null;
+        this.scheduler = limit != null
+                ? new CrawlScheduler(limit, schedulerSettings.requestsPerMinute())
+                : new CrawlScheduler(schedulerSettings.slots(), schedulerSettings.requestsPerMinute());
+        this.metrics.registerScheduler(scheduler);
+        // Limits async calls only; every call goes to the same host, so both limits are the same
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxInFlight);
+        dispatcher.setMaxRequestsPerHost(maxInFlight);
+        this.metrics.registerDispatcher(dispatcher);
+        // Token requests bypass the pool; API calls go through it first, so each attempt is timed
+        RedditProperties.Circuit circuit = reddit.circuit();
+        this.circuitBreaker = new CircuitBreaker(circuit.failureRate(), circuit.slowCallRate(),
+                TimeUnit.MILLISECONDS.toNanos(circuit.slowCallMs()), TimeUnit.MILLISECONDS.toNanos(circuit.openMs()),
+                circuit.trialCalls(), metrics);
+        this.metrics.registerCircuitBreaker(circuitBreaker);
+        // One stalled response would hold its whole crawl, so every call is bounded. The breaker
+        // comes first on both clients, so token requests and API attempts count alike
+        OkHttpClient tokenClient = new OkHttpClient.Builder()
+                .connectTimeout(reddit.connectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(reddit.readTimeoutMs(), TimeUnit.MILLISECONDS)
+                .callTimeout(reddit.callTimeoutMs(), TimeUnit.MILLISECONDS)
+                .addInterceptor(circuitBreaker)
+                .addInterceptor(new RequestMetricsInterceptor(metrics))
+                .build();
+        this.credentials = CredentialPool.of(RedditConfig.credentials(), tokenClient, objectMapper,
+                RedditConfig.TOKEN_URL, metrics);
+        this.metrics.registerCredentialPool(credentials);
+        OkHttpClient.Builder api = tokenClient.newBuilder().dispatcher(dispatcher);
+        api.interceptors().add(0, credentials);
+        if (limit != null) {
+            // After the pool, so the limit sees every attempt, 429s retried on another credential included
+            api.interceptors().add(1, limit);
+        }
+        // Duplicates go through the pool and the limit like any other call
+        this.httpClient = reddit.hedge().enabled()
+                ? HedgingInterceptor.install(api.build(), reddit.hedge().maxRatio(), metrics)
+                : api.build();
+    }
+
+    public Object crawlFromRedditUrl(String redditUrl, ExportOptions options) throws IOException {
+        return crawlFromRedditUrl(redditUrl, options, startTrace(redditUrl));
+    }
+
+    /**
+     * Starts recording the timeline of a crawl; pass the trace to {@link #crawlFromRedditUrl}.
+     */
+    public CrawlTrace startTrace(String redditUrl) {
+        return traces.start(redditUrl);
+    }
+
+    public Optional<CrawlTrace> getTrace(String crawlId) {
+        return traces.get(crawlId);
+    }
+
+    /**
+     * Returns where the crawl's users stand in the shared scheduler, while any are queued or being fetched.
+     */
+    public Optional<CrawlScheduler.Progress> getProgress(String crawlId) {
+        return scheduler.progress(crawlId);
+    }
+
+    public List<CrawlScheduler.Progress> getQueue() {
+        return scheduler.progress();
+    }
+
+    public CircuitBreaker.State getRedditState() {
+        return circuitBreaker.state();
+    }
+
+    /**
+     * Crawls the post and returns the graph. A post that is being crawled, or was crawled
+     * within the cache TTL, isn't crawled again: its users are already in the shared graph,
+     * and recording them twice would double their co-occurrence counts.
+     */
+    public Object crawlFromRedditUrl(String redditUrl, ExportOptions options, CrawlTrace trace)
+            throws IOException {
+        try {
+            crawl(RedditClient.extractPostId(redditUrl), trace);
+            return exportCrawled(options, trace);
+        } finally {
+            trace.finish();
+        }
+    }
+
+    /**
+     * Crawls several posts as one: the posts of the URLs and of the subreddit listings among
+     * them. Listings and commenters are fetched in parallel, and a user who commented on
+     * several of the posts is fetched once. Posts being crawled, or crawled within the cache
+     * TTL, are skipped, since their users are already in the graph.
+     */
+    public Object crawlBatch(BatchCrawlRequest batch, ExportOptions options, CrawlTrace trace) throws IOException {
+        try {
+            RedditClient client = authenticate(trace);
+
+            Timer.Sample stage = metrics.start();
+            Set<String> postIds = resolvePosts(client, batch, trace);
+            Map<String, CompletableFuture<CrawlCoalescer.Crawl>> claims = new LinkedHashMap<>();
+            for (String postId : postIds) {
+                CompletableFuture<CrawlCoalescer.Crawl> claim = coalescer.claim(postId);
+                if (claim != null) {
+                    claims.put(postId, claim);
+                }
+            }
+
+            Map<String, CompletableFuture<Set<String>>> discoveries = new LinkedHashMap<>();
+            claims.keySet().forEach(postId ->
+                    discoveries.put(postId, inParallel(() -> discover(client, postId, trace))));
+
+            Map<String, Integer> commenters = new LinkedHashMap<>();
+            Set<String> usernames = new HashSet<>();
+            int discovered = 0;
+            for (Map.Entry<String, CompletableFuture<Set<String>>> discovery : discoveries.entrySet()) {
+                String postId = discovery.getKey();
+                try {
+                    Set<String> postUsers = await(discovery.getValue());
+                    commenters.put(postId, postUsers.size());
+                    usernames.addAll(postUsers);
+                    discovered += postUsers.size();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Skipping post {} of the batch: {}", postId, e.getMessage());
+                    coalescer.fail(postId, claims.remove(postId), e);
+                }
+            }
+            metrics.stage(stage, "discovery");
+            metrics.batchUsers(discovered, usernames.size());
+            log.info("Batch of {} posts, {} skipped as recently crawled, {} failed: {} commenters, {} distinct",
+                    postIds.size(), postIds.size() - discoveries.size(), discoveries.size() - claims.size(),
+                    discovered, usernames.size());
+
+            try {
+                crawlUsers(client, usernames, trace);
+            } catch (RuntimeException e) {
+                claims.forEach((postId, claim) -> coalescer.fail(postId, claim, e));
+                throw e;
+            }
+            // What crawling each post on its own would have cost: thread, and two listings per user
+            claims.forEach((postId, claim) -> claim.complete(
+                    new CrawlCoalescer.Crawl(trace.id(), 1 + 2 * commenters.get(postId), coalescer.now())));
+
+            return exportCrawled(options, trace);
+        } finally {
+            trace.finish();
+        }
+    }
+
+    /**
+     * Spiders out from a post: its commenters, then the commenters of the posts they commented
+     * on, and so on, within the request's depth, fan-out and user budget. Each user and post is
+     * visited at most once per crawl. Like a batch, posts being crawled, or crawled within the
+     * cache TTL, are skipped, since their users are already in the graph.
+     */
+    public Object crawlSpider(SpiderCrawlRequest spider, ExportOptions options, CrawlTrace trace) throws IOException {
+        try {
+            String seedPostId = RedditClient.extractPostId(spider.getUrl());
+            RedditClient client = authenticate(trace);
+
+            NearDuplicateDetector duplicates = duplicateDetection.get();
+            Map<String, CompletableFuture<CrawlCoalescer.Crawl>> claims = new ConcurrentHashMap<>();
+            Map<String, Integer> commenters = new ConcurrentHashMap<>();
+            CrawlFrontier frontier = new CrawlFrontier(
+                    new CrawlFrontier.Limits(spider.getDepth(), spider.getFanOut(), spider.getBudget()),
+                    postId -> discoverClaimed(client, postId, claims, commenters, trace),
+                    (usernames, postsCommented) -> crawlUsers(client, usernames, postsCommented, duplicates, trace),
+                    executor);
+            CrawlFrontier.Result result;
+            try {
+                result = frontier.crawl(seedPostId);
+            } catch (RuntimeException e) {
+                claims.forEach((postId, claim) -> coalescer.fail(postId, claim, e));
+                throw e;
+            }
+            claims.forEach((postId, claim) -> claim.complete(
+                    new CrawlCoalescer.Crawl(trace.id(), 1 + 2 * commenters.get(postId), coalescer.now())));
+            log.info("Spider crawl from {}: {} hops, {} users, {} posts, {} skipped as recently crawled", seedPostId,
+                    result.hops(), result.users(), result.posts(), result.posts() - claims.size());
+
+            return exportCrawled(options, trace);
+        } finally {
+            trace.finish();
+        }
+    }
+
+    private Set<String> resolvePosts(RedditClient client, BatchCrawlRequest batch, CrawlTrace trace)
+            throws IOException {
+        Set<String> postIds = new LinkedHashSet<>();
+        List<CompletableFuture<List<String>>> listings = new ArrayList<>();
+        for (String url : batch.getUrls()) {
+            if (url.contains("/comments/")) {
+                postIds.add(RedditClient.extractPostId(url));
+            } else {
+                String listingPath = RedditClient.listingPath(url);
+                listings.add(inParallel(() -> {
+                    long start = trace.now();
+                    List<String> posts = client.getPostIds(listingPath, batch.getLimit());
+                    trace.record(Span.DISCOVERY, listingPath, start);
+                    return posts;
+                }));
+            }
+        }
+        for (CompletableFuture<List<String>> listing : listings) {
+            postIds.addAll(await(listing));
+        }
+        return postIds;
+    }
+
+    /**
+     * Crawls the post in the background and streams the graph to the emitter as it grows:
+     * a "graph" event with the graph at minWeight so far, a "delta" event per window with
+     * the edges that reached minWeight and the words they introduced, and a "done" event
+     * when the crawl ends. An edge crossing while the stream starts may be in both the graph
+     * and the first delta, so clients key nodes and edges by their words.
+     */
+    public void streamCrawl(String redditUrl, int minWeight, CrawlTrace trace, SseEmitter emitter) {
+        String postId = RedditClient.extractPostId(redditUrl);
+
+        GraphDeltaBuffer deltas = new GraphDeltaBuffer();
+        // Listen before exporting, so no edge falls between the graph and the first delta
+        wordGraph.addListener(minWeight, deltas);
+
+        long start = trace.now();
+        Map<String, Object> graph = wordGraph.snapshot().exportData(minWeight);
+        deltas.seed(graph);
+        trace.record(Span.EXPORT, null, start);
+        send(emitter, "graph", graph);
+
+        ScheduledFuture<?> flushes = streamScheduler.scheduleAtFixedRate(
+                () -> send(emitter, "delta", deltas.drain()),
+                streamWindowMillis, streamWindowMillis, TimeUnit.MILLISECONDS);
+        Runnable stop = () -> {
+            flushes.cancel(false);
+            wordGraph.removeListener(deltas);
+        };
+        // The client may disconnect before the crawl ends
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+
+        executor.execute(() -> {
+            try {
+                CrawlCoalescer.Result result = crawl(postId, trace);
+                stop.run();
+                send(emitter, "delta", deltas.drain());
+                send(emitter, "done", Map.of(
+                        "crawlId", trace.id(),
+                        "cache", result.outcome().name().toLowerCase(Locale.ENGLISH)
+                ));
+                emitter.complete();
+            } catch (IOException | RuntimeException e) {
+                stop.run();
+                emitter.completeWithError(e);
+            } finally {
+                trace.finish();
+            }
+        });
+    }
+
+    private CrawlCoalescer.Result crawl(String postId, CrawlTrace trace) throws IOException {
+        CrawlCoalescer.Result result = coalescer.crawl(postId, () -> crawlPost(postId, trace));
+        metrics.crawlCache(result.outcome(), result.crawl().requests());
+        return result;
+    }
+
+    private CrawlCoalescer.Crawl crawlPost(String postId, CrawlTrace trace) throws IOException {
+        RedditClient client = authenticate(trace);
+
+        Timer.Sample stage = metrics.start();
+        Set<String> usernames = discover(client, postId, trace);
+        metrics.stage(stage, "discovery");
+
+        crawlUsers(client, usernames, trace);
+
+        // Thread and two listings per user; tokens are cached by the credential pool
+        return new CrawlCoalescer.Crawl(trace.id(), 1 + 2 * usernames.size(), coalescer.now());
+    }
+
+    private RedditClient authenticate(CrawlTrace trace) throws IOException {
+        // Fail at once while Reddit is down rather than on every user's calls
+        circuitBreaker.checkAvailable();
+        Timer.Sample stage = metrics.start();
+        long start = trace.now();
+        RedditClient client = new RedditClient(httpClient, objectMapper, credentials.token());
+        metrics.stage(stage, "auth");
+        trace.record(Span.AUTH, null, start);
+        return client;
+    }
+
+    /**
+     * Discovers a spider crawl's post if it can be claimed, and no commenters if it is being
+     * crawled or was crawled within the TTL. A claim whose discovery fails is released.
+     */
+    private Set<String> discoverClaimed(RedditClient client, String postId,
+                                        Map<String, CompletableFuture<CrawlCoalescer.Crawl>> claims,
+                                        Map<String, Integer> commenters, CrawlTrace trace) throws IOException {
+        CompletableFuture<CrawlCoalescer.Crawl> claim = coalescer.claim(postId);
+        if (claim == null) {
+            return Set.of();
+        }
+        try {
+            Set<String> usernames = discover(client, postId, trace);
+            commenters.put(postId, usernames.size());
+            claims.put(postId, claim);
+            return usernames;
+        } catch (IOException | RuntimeException e) {
+            coalescer.fail(postId, claim, e);
+            throw e;
+        }
+    }
+
+    private Set<String> discover(RedditClient client, String postId, CrawlTrace trace) throws IOException {
+        long start = trace.now();
+        Set<String> usernames = filterAuthors(client.getComments(postId));
+        metrics.commenters(usernames.size());
+        trace.record(Span.DISCOVERY, postId, start);
+        return usernames;
+    }
+
+    // Drops commenters not worth fetching before any of their history is requested
+    private Set<String> filterAuthors(Map<String, List<JsonNode>> comments) {
+        Set<String> usernames = new HashSet<>();
+        comments.forEach((author, authored) -> {
+            String reason = authorFilter.reject(author, authored);
+            if (reason == null) {
+                usernames.add(author);
+            } else {
+                metrics.authorFiltered(reason);
+            }
+        });
+        return usernames;
+    }
+
+    private void crawlUsers(RedditClient client, Set<String> usernames, CrawlTrace trace) {
+        crawlUsers(client, usernames, posts -> {
+        }, duplicateDetection.get(), trace);
+    }
+
+    private void crawlUsers(RedditClient client, Set<String> usernames, Consumer<List<String>> postsCommented,
+                            NearDuplicateDetector duplicates, CrawlTrace trace) {
+        Timer.Sample stage = metrics.start();
+        CrawlManager manager = new CrawlManager(scheduler, wordGraph, client.getAccessToken(), httpClient,
+                client.getBaseUrl(), metrics, trace, duplicates);
+        if (asyncFetch) {
+            manager.crawlUsersAsync(usernames, postsCommented);
+        } else {
+            manager.crawlUsers(usernames, postsCommented);
+        }
+        metrics.stage(stage, "users");
+    }
+
+    private Object exportCrawled(ExportOptions options, CrawlTrace trace) {
+        Timer.Sample stage = metrics.start();
+        long start = trace.now();
+        // Publish a fresh snapshot so the response includes everything the crawl recorded
+        Object graph = export(wordGraph.snapshot(), options);
+        metrics.stage(stage, "export");
+        trace.record(Span.EXPORT, null, start);
+        return graph;
+    }
+
+    // Runs a blocking Reddit call on the service executor, so the posts of a batch are fetched in parallel
+    private <T> CompletableFuture<T> inParallel(RedditCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private static <T> T await(CompletableFuture<T> call) throws IOException {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RedditCall<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Returns the published snapshot for the read endpoints. Its version identifies the graph,
+     * so callers can tell whether a client already has it before exporting anything.
+     */
+    public GraphSnapshot latestGraph() {
+        return wordGraph.latestSnapshot();
+    }
+
+    public Object exportGraph(GraphSnapshot snapshot, ExportOptions options) {
+        return export(snapshot, options);
+    }
+
+    public Map<String, Object> exportCommunities(GraphSnapshot snapshot, int minWeight) {
+        return communityDetector.exportCommunities(snapshot, minWeight);
+    }
+
+    public List<GraphEdge> getNeighbors(GraphSnapshot snapshot, String word, int k) {
+        return snapshot.topNeighbors(word.toLowerCase(Locale.ENGLISH), k);
+    }
+
+    public Map<String, Object> exportEgo(GraphSnapshot snapshot, String word, int hops, int maxNodes, int minWeight) {
+        return snapshot.exportEgo(word.toLowerCase(Locale.ENGLISH), hops, maxNodes, minWeight);
+    }
+
+    /**
+     * Republishes the read snapshot while crawls are writing; a no-op when nothing changed.
+     */
+    @Scheduled(fixedDelayString = "${spidereddit.snapshot.refresh-interval-ms:1000}")
+    public void refreshSnapshot() {
+        wordGraph.snapshot();
+    }
+
+    @Scheduled(fixedDelayString = "${spidereddit.crawl.cache-ttl-ms:600000}")
+    public void evictExpiredCrawls() {
+        coalescer.evictExpired();
+    }
+
+    // Sends one event unless there is nothing to send; the flush thread and the crawl thread share the emitter
+    private static void send(SseEmitter emitter, String event, Object data) {
+        if (data == null) {
+            return;
+        }
+        synchronized (emitter) {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the stream already ended; the completion callback cleans up
+            }
+        }
+    }
+
+    private Object export(GraphSnapshot snapshot, ExportOptions options) {
+        if (options.getFormat().equalsIgnoreCase("compact")) {
+            return exportCompact(snapshot, options);
+        }
+        if (!options.getFormat().equalsIgnoreCase("json")) {
+            throw new IllegalArgumentException("Unknown format: " + options.getFormat());
+        }
+
+        if (!options.getWeighting().equalsIgnoreCase("raw")) {
+            if (!options.getMode().equalsIgnoreCase("full")) {
+                throw new IllegalArgumentException("Weighting " + options.getWeighting() + " requires mode=full");
+            }
+            AssociationMeasure measure = AssociationMeasure.valueOf(options.getWeighting().toUpperCase(Locale.ENGLISH));
+            return snapshot.exportAssociations(measure, options.getMinWeight(), options.getMinScore());
+        }
+
+        return switch (options.getMode().toLowerCase(Locale.ENGLISH)) {
+            case "full" -> snapshot.exportData(options.getMinWeight());
+            case "top" -> snapshot.exportTopNodes(options.getTopN(), options.getMinWeight());
+            case "backbone" -> snapshot.exportBackbone(options.getAlpha(), options.getMinWeight());
+            default -> throw new IllegalArgumentException("Unknown export mode: " + options.getMode());
+        };
+    }
 
-    public Map<String, Object> crawlFromRedditUrl(String redditUrl) throws IOException {
+    private CompactGraph exportCompact(GraphSnapshot snapshot, ExportOptions options) {
+        if (!options.getWeighting().equalsIgnoreCase("raw")) {
+            throw new IllegalArgumentException("Weighting " + options.getWeighting() + " has no compact format");
+        }
 
-        RedditClient client = new RedditClient(httpClient, objectMapper, auth.fetchAccessToken());
-        String postId = client.extractPostId(redditUrl);
-        Set<String> usernames = client.getAllCommenters(postId, client.getAccessToken());
-        CrawlManager manager = new CrawlManager(5, wordGraph, client.getAccessToken());
-        manager.crawlUsers(usernames);
-        return wordGraph.exportData(3);
+        return switch (options.getMode().toLowerCase(Locale.ENGLISH)) {
+            case "full" -> snapshot.exportCompactData(options.getMinWeight());
+            case "top" -> snapshot.exportCompactTopNodes(options.getTopN(), options.getMinWeight());
+            case "backbone" -> snapshot.exportCompactBackbone(options.getAlpha(), options.getMinWeight());
+            default -> throw new IllegalArgumentException("Unknown export mode: " + options.getMode());
+        };
     }
 
 
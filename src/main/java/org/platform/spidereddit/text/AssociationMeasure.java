@@ -0,0 +1,39 @@
+package org.platform.spidereddit.text;
+
+/**
+ * Association measures computed from a pair count and the marginal counts of its words.
+ * Each recorded pair adds one to the pair, to both words' marginals and to the total,
+ * so P(x, y) = weight / total and P(x) = marginal(x) / (2 * total).
+ */
+public enum AssociationMeasure {
+
+    /** Pointwise mutual information, log(P(x, y) / (P(x) * P(y))). */
+    PMI {
+        @Override
+        public double score(int weight, long sourceCount, long targetCount, long totalPairs) {
+            return Math.log(4.0 * weight * totalPairs / ((double) sourceCount * targetCount));
+        }
+    },
+
+    /** PMI normalized to [-1, 1] by -log(P(x, y)). */
+    NPMI {
+        @Override
+        public double score(int weight, long sourceCount, long targetCount, long totalPairs) {
+            double jointProbability = (double) weight / totalPairs;
+            if (jointProbability >= 1.0) {
+                return 1.0;
+            }
+            return PMI.score(weight, sourceCount, targetCount, totalPairs) / -Math.log(jointProbability);
+        }
+    },
+
+    /** Share of the two words' pairs that they spend on each other. */
+    JACCARD {
+        @Override
+        public double score(int weight, long sourceCount, long targetCount, long totalPairs) {
+            return weight / (double) (sourceCount + targetCount - weight);
+        }
+    };
+
+    public abstract double score(int weight, long sourceCount, long targetCount, long totalPairs);
+}
@@ -0,0 +1,239 @@
+package org.platform.spidereddit.text;
+
+import org.platform.spidereddit.model.CommunityNode;
+import org.platform.spidereddit.model.GraphEdge;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Weighted label propagation over a {@link GraphSnapshot}, run on a fork/join pool.
+ * Every word starts in its own community and repeatedly adopts the label carrying the
+ * most edge weight among its neighbors. Labels are updated in place while a round runs,
+ * which converges in a handful of rounds and avoids the oscillation of synchronous rounds.
+ */
+public class CommunityDetector {
+
+    private static final int MAX_ROUNDS = 20;
+    private static final int SEQUENTIAL_THRESHOLD = 2048;
+    private static final int NO_COMMUNITY = -1;
+
+    private final ForkJoinPool pool;
+
+    public CommunityDetector() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public CommunityDetector(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the thresholded graph with a community id on every node, plus the community count.
+     */
+    public Map<String, Object> exportCommunities(GraphSnapshot snapshot, int minWeight) {
+        int[] communities = detect(snapshot, minWeight);
+
+        List<CommunityNode> nodes = new ArrayList<>();
+        List<GraphEdge> edges = new ArrayList<>();
+        int communityCount = 0;
+        for (int u = 0; u < snapshot.nodeCount(); u++) {
+            if (communities[u] == NO_COMMUNITY) continue;
+
+            nodes.add(new CommunityNode(snapshot.words[u], communities[u]));
+            communityCount = Math.max(communityCount, communities[u] + 1);
+            for (int e = snapshot.offsets[u]; e < snapshot.offsets[u + 1] && snapshot.weights[e] >= minWeight; e++) {
+                String target = snapshot.words[snapshot.targets[e]];
+                // Each edge is stored at both ends; keep the (smaller, larger) orientation of the export
+                if (snapshot.words[u].compareTo(target) < 0) {
+                    edges.add(new GraphEdge(snapshot.words[u], target, snapshot.weights[e]));
+                }
+            }
+        }
+
+        return Map.of(
+                "nodes", nodes,
+                "edges", edges,
+                "communities", communityCount
+        );
+    }
+
+    /**
+     * Returns a community id per snapshot node, numbered from 0 by descending community size.
+     * Only edges with weight >= minWeight vote; nodes without such edges get -1.
+     */
+    public int[] detect(GraphSnapshot snapshot, int minWeight) {
+        int n = snapshot.nodeCount();
+        int[] labels = new int[n];
+        int[] order = new int[n];
+        for (int u = 0; u < n; u++) {
+            labels[u] = u;
+            order[u] = u;
+        }
+        // A fixed random visiting order stops labels from sweeping along the id order
+        Random random = new Random(n);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        // Tallies are lent to one leaf task at a time: there are only as many as leaves ever ran at
+        // once, and they are dropped with this call instead of staying on the pool's threads
+        Queue<LabelVotes> votes = new ConcurrentLinkedQueue<>();
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            int changed = pool.invoke(new PropagationTask(snapshot, minWeight, labels, order, votes, 0, n));
+            if (changed == 0) break;
+        }
+
+        return renumber(snapshot, minWeight, labels);
+    }
+
+    private static int[] renumber(GraphSnapshot snapshot, int minWeight, int[] labels) {
+        int n = labels.length;
+        int[] sizes = new int[n];
+        boolean[] connected = new boolean[n];
+        for (int u = 0; u < n; u++) {
+            int first = snapshot.offsets[u];
+            connected[u] = first < snapshot.offsets[u + 1] && snapshot.weights[first] >= minWeight;
+            if (connected[u]) {
+                sizes[labels[u]]++;
+            }
+        }
+
+        List<Integer> distinct = new ArrayList<>();
+        for (int label = 0; label < n; label++) {
+            if (sizes[label] > 0) {
+                distinct.add(label);
+            }
+        }
+        distinct.sort(Comparator.comparingInt((Integer label) -> -sizes[label]).thenComparingInt(label -> label));
+
+        int[] ids = new int[n];
+        for (int i = 0; i < distinct.size(); i++) {
+            ids[distinct.get(i)] = i;
+        }
+
+        int[] communities = new int[n];
+        for (int u = 0; u < n; u++) {
+            communities[u] = connected[u] ? ids[labels[u]] : NO_COMMUNITY;
+        }
+        return communities;
+    }
+
+    /**
+     * One propagation round over order[from, to), split in halves until small enough.
+     * Returns the number of words whose label changed.
+     */
+    private static class PropagationTask extends RecursiveTask<Integer> {
+
+        private final GraphSnapshot snapshot;
+        private final int minWeight;
+        private final int[] labels;
+        private final int[] order;
+        private final Queue<LabelVotes> votes;
+        private final int from;
+        private final int to;
+
+        PropagationTask(GraphSnapshot snapshot, int minWeight, int[] labels, int[] order,
+                        Queue<LabelVotes> votes, int from, int to) {
+            this.snapshot = snapshot;
+            this.minWeight = minWeight;
+            this.labels = labels;
+            this.order = order;
+            this.votes = votes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from > SEQUENTIAL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                PropagationTask left = new PropagationTask(snapshot, minWeight, labels, order, votes, from, mid);
+                left.fork();
+                int right = new PropagationTask(snapshot, minWeight, labels, order, votes, mid, to).compute();
+                return left.join() + right;
+            }
+
+            LabelVotes tally = votes.poll();
+            if (tally == null) {
+                tally = new LabelVotes(labels.length);
+            }
+            int changed = 0;
+            for (int i = from; i < to; i++) {
+                int u = order[i];
+                for (int e = snapshot.offsets[u]; e < snapshot.offsets[u + 1] && snapshot.weights[e] >= minWeight; e++) {
+                    tally.add(labels[snapshot.targets[e]], snapshot.weights[e]);
+                }
+                if (tally.isEmpty()) continue;
+
+                int best = tally.strongest(labels[u]);
+                tally.clear();
+                if (best != labels[u]) {
+                    labels[u] = best;
+                    changed++;
+                }
+            }
+            votes.offer(tally);
+            return changed;
+        }
+    }
+
+    /**
+     * Weight tally indexed by label, used by one leaf task at a time and cleared through the list of touched labels
+     * so a vote costs O(degree) rather than O(labels).
+     */
+    private static class LabelVotes {
+
+        private final long[] weightByLabel;
+        private final int[] touched;
+        private int touchedCount;
+
+        LabelVotes(int labelCount) {
+            this.weightByLabel = new long[labelCount];
+            this.touched = new int[labelCount];
+        }
+
+        void add(int label, int weight) {
+            if (weightByLabel[label] == 0) {
+                touched[touchedCount++] = label;
+            }
+            weightByLabel[label] += weight;
+        }
+
+        boolean isEmpty() {
+            return touchedCount == 0;
+        }
+
+        // Heaviest label; ties keep the current label, otherwise go to the smallest label
+        int strongest(int current) {
+            int best = current;
+            long bestWeight = weightByLabel[current];
+            for (int i = 0; i < touchedCount; i++) {
+                int label = touched[i];
+                long weight = weightByLabel[label];
+                if (weight > bestWeight || (weight == bestWeight && best != current && label < best)) {
+                    best = label;
+                    bestWeight = weight;
+                }
+            }
+            return best;
+        }
+
+        void clear() {
+            for (int i = 0; i < touchedCount; i++) {
+                weightByLabel[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
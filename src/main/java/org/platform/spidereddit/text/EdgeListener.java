@@ -0,0 +1,12 @@
+package org.platform.spidereddit.text;
+
+/**
+ * Notified when an edge of the word graph reaches a weight threshold, see
+ * {@link WordGraph#addListener(int, EdgeListener)}. Called on the crawl thread that
+ * recorded the co-occurrence, so implementations must be thread-safe and cheap.
+ */
+@FunctionalInterface
+public interface EdgeListener {
+
+    void edgeCrossed(String source, String target, int weight);
+}
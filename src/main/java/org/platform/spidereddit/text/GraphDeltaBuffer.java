@@ -0,0 +1,60 @@
+package org.platform.spidereddit.text;
+
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.GraphNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the edges that reached a stream's threshold, and the words they introduced,
+ * between two flushes. Fetchers add to it from many threads; the stream drains it once
+ * per window and sends the batch as one delta.
+ */
+public class GraphDeltaBuffer implements EdgeListener {
+
+    // Words the client already has, from the initial graph or an earlier delta
+    private final Set<String> sentWords = new HashSet<>();
+    private List<GraphNode> nodes = new ArrayList<>();
+    private List<GraphEdge> edges = new ArrayList<>();
+
+    /**
+     * Marks the words of a graph the client already received, so deltas don't repeat them.
+     */
+    public synchronized void seed(Map<String, Object> graph) {
+        @SuppressWarnings("unchecked")
+        Iterable<GraphNode> seeded = (Iterable<GraphNode>) graph.get("nodes");
+        seeded.forEach(node -> sentWords.add(node.getId()));
+    }
+
+    @Override
+    public synchronized void edgeCrossed(String source, String target, int weight) {
+        if (sentWords.add(source)) {
+            nodes.add(new GraphNode(source));
+        }
+        if (sentWords.add(target)) {
+            nodes.add(new GraphNode(target));
+        }
+        edges.add(new GraphEdge(source, target, weight));
+    }
+
+    /**
+     * Returns the nodes and edges added since the previous drain, or null if there are none.
+     */
+    public synchronized Map<String, Object> drain() {
+        if (edges.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> delta = Map.of(
+                "nodes", nodes,
+                "edges", edges
+        );
+        nodes = new ArrayList<>();
+        edges = new ArrayList<>();
+        return delta;
+    }
+}
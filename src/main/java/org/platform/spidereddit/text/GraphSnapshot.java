@@ -0,0 +1,443 @@
+package org.platform.spidereddit.text;
+
+import org.platform.spidereddit.model.CompactGraph;
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.GraphNode;
+import org.platform.spidereddit.model.ScoredEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable compressed sparse row (CSR) copy of a {@link WordGraph}.
+ * Every edge is stored in both directions, and each word's neighbors keep the
+ * descending weight order of the live index, so thresholded scans stop at the
+ * first lighter edge. Readers never touch the concurrent maps that crawls write to.
+ */
+public final class GraphSnapshot {
+
+    static final GraphSnapshot EMPTY = new GraphSnapshot(0, 0, new String[0], new long[0],
+            new int[1], new int[0], new int[0]);
+
+    private final long version;
+    private final long totalPairs;
+
+    // Node ids are the stable ids of the live index; slots of words not visible yet hold null
+    final String[] words;
+    final long[] strengths;
+
+    // Neighbors of node u are targets[offsets[u]] .. targets[offsets[u + 1] - 1]
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+
+    private final Map<String, Integer> ids;
+
+    GraphSnapshot(long version, long totalPairs, String[] words, long[] strengths,
+                  int[] offsets, int[] targets, int[] weights) {
+        this.version = version;
+        this.totalPairs = totalPairs;
+        this.words = words;
+        this.strengths = strengths;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.ids = new HashMap<>(words.length * 2);
+        for (int id = 0; id < words.length; id++) {
+            if (words[id] != null) {
+                ids.put(words[id], id);
+            }
+        }
+    }
+
+    /**
+     * Copies the adjacency index into CSR arrays. A word whose strength is unchanged since
+     * the previous snapshot has an unchanged row, which is copied from that snapshot without
+     * locking; only changed rows are read from the live index.
+     */
+    static GraphSnapshot build(Map<String, NeighborList> adjacency, int nodeCount, GraphSnapshot previous,
+                               long version, long totalPairs) {
+        String[] words = new String[nodeCount];
+        long[] strengths = new long[nodeCount];
+        int[] lengths = new int[nodeCount];
+        int[][] changedTargets = new int[nodeCount][];
+        int[][] changedWeights = new int[nodeCount][];
+
+        for (NeighborList list : adjacency.values()) {
+            int id = list.id();
+            // Created after the build started
+            if (id >= nodeCount) continue;
+
+            words[id] = list.word();
+            if (id < previous.words.length && previous.words[id] != null
+                    && previous.strengths[id] == list.strength()) {
+                strengths[id] = previous.strengths[id];
+                lengths[id] = previous.offsets[id + 1] - previous.offsets[id];
+                continue;
+            }
+
+            NeighborList.Copy copy = list.copy();
+            int[] rowTargets = new int[copy.words().length];
+            int[] rowWeights = new int[copy.words().length];
+            int length = 0;
+            long strength = copy.strength();
+            for (int i = 0; i < copy.words().length; i++) {
+                NeighborList neighbor = adjacency.get(copy.words()[i]);
+                // Skip neighbors whose own entry is still being created. The row's strength then
+                // leaves them out too, so the next build sees it changed and reads the row again.
+                if (neighbor == null || neighbor.id() >= nodeCount) {
+                    strength -= copy.weights()[i];
+                    continue;
+                }
+
+                words[neighbor.id()] = neighbor.word();
+                rowTargets[length] = neighbor.id();
+                rowWeights[length] = copy.weights()[i];
+                length++;
+            }
+            strengths[id] = strength;
+            lengths[id] = length;
+            changedTargets[id] = rowTargets;
+            changedWeights[id] = rowWeights;
+        }
+
+        int[] offsets = new int[nodeCount + 1];
+        for (int id = 0; id < nodeCount; id++) {
+            offsets[id + 1] = offsets[id] + lengths[id];
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        int[] weights = new int[offsets[nodeCount]];
+        for (int id = 0; id < nodeCount; id++) {
+            if (changedTargets[id] != null) {
+                System.arraycopy(changedTargets[id], 0, targets, offsets[id], lengths[id]);
+                System.arraycopy(changedWeights[id], 0, weights, offsets[id], lengths[id]);
+            } else if (lengths[id] > 0) {
+                System.arraycopy(previous.targets, previous.offsets[id], targets, offsets[id], lengths[id]);
+                System.arraycopy(previous.weights, previous.offsets[id], weights, offsets[id], lengths[id]);
+            }
+        }
+
+        return new GraphSnapshot(version, totalPairs, words, strengths, offsets, targets, weights);
+    }
+
+    /**
+     * Version of the live graph this snapshot was taken at.
+     */
+    public long version() {
+        return version;
+    }
+
+    public int nodeCount() {
+        return words.length;
+    }
+
+    /**
+     * Number of undirected edges (each is stored once per endpoint).
+     */
+    public int edgeCount() {
+        return targets.length / 2;
+    }
+
+    public String word(int node) {
+        return words[node];
+    }
+
+    /**
+     * Returns the graph as a map of nodes and edges with weight >= minWeight.
+     */
+    public Map<String, Object> exportData(int minWeight) {
+        Set<GraphNode> nodes = new HashSet<>();
+        List<GraphEdge> edges = new ArrayList<>();
+
+        forEachEdge(minWeight, (source, target, weight) -> addEdge(nodes, edges, source, target, weight));
+
+        return Map.of(
+                "nodes", nodes,
+                "edges", edges
+        );
+    }
+
+    /**
+     * Returns the subgraph induced by the topN words with the highest weighted degree,
+     * keeping only edges with weight >= minWeight.
+     */
+    public Map<String, Object> exportTopNodes(int topN, int minWeight) {
+        boolean[] selected = strongest(topN);
+
+        Set<GraphNode> nodes = new HashSet<>();
+        List<GraphEdge> edges = new ArrayList<>();
+        forEachEdge(minWeight, (u, v, weight) -> selected[u] && selected[v],
+                (source, target, weight) -> addEdge(nodes, edges, source, target, weight));
+
+        return Map.of(
+                "nodes", nodes,
+                "edges", edges
+        );
+    }
+
+    /**
+     * Returns the disparity filter backbone: edges with weight >= minWeight that are
+     * significant at level alpha for at least one of their endpoints.
+     */
+    public Map<String, Object> exportBackbone(double alpha, int minWeight) {
+        Set<GraphNode> nodes = new HashSet<>();
+        List<GraphEdge> edges = new ArrayList<>();
+
+        forEachEdge(minWeight, backbone(alpha),
+                (source, target, weight) -> addEdge(nodes, edges, source, target, weight));
+
+        return Map.of(
+                "nodes", nodes,
+                "edges", edges
+        );
+    }
+
+    /**
+     * Returns edges with weight >= minWeight re-weighted by an association measure, keeping
+     * those that score at least minScore. Scores come from the per-word marginals in the
+     * same pass, so no second graph structure is built.
+     */
+    public Map<String, Object> exportAssociations(AssociationMeasure measure, int minWeight, double minScore) {
+        Set<GraphNode> nodes = new HashSet<>();
+        List<ScoredEdge> edges = new ArrayList<>();
+
+        for (int u = 0; u < words.length; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1] && weights[e] >= minWeight; e++) {
+                int v = targets[e];
+                if (!isStoredOrientation(u, v)) continue;
+
+                double score = measure.score(weights[e], strengths[u], strengths[v], totalPairs);
+                if (score >= minScore) {
+                    nodes.add(new GraphNode(words[u]));
+                    nodes.add(new GraphNode(words[v]));
+                    edges.add(new ScoredEdge(words[u], words[v], weights[e], score));
+                }
+            }
+        }
+
+        return Map.of(
+                "nodes", nodes,
+                "edges", edges
+        );
+    }
+
+    /**
+     * Same graph as {@link #exportData}, in the compact format.
+     */
+    public CompactGraph exportCompactData(int minWeight) {
+        return compact(minWeight, (u, v, weight) -> true);
+    }
+
+    /**
+     * Same graph as {@link #exportTopNodes}, in the compact format.
+     */
+    public CompactGraph exportCompactTopNodes(int topN, int minWeight) {
+        boolean[] selected = strongest(topN);
+        return compact(minWeight, (u, v, weight) -> selected[u] && selected[v]);
+    }
+
+    /**
+     * Same graph as {@link #exportBackbone}, in the compact format.
+     */
+    public CompactGraph exportCompactBackbone(double alpha, int minWeight) {
+        return compact(minWeight, backbone(alpha));
+    }
+
+    /**
+     * Returns the k strongest associations of a word, ordered by descending weight.
+     */
+    public List<GraphEdge> topNeighbors(String word, int k) {
+        Integer u = ids.get(word);
+        if (u == null || k <= 0) {
+            return List.of();
+        }
+
+        int end = Math.min(offsets[u + 1], offsets[u] + k);
+        List<GraphEdge> result = new ArrayList<>(end - offsets[u]);
+        for (int e = offsets[u]; e < end; e++) {
+            result.add(new GraphEdge(word, words[targets[e]], weights[e]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the neighborhood of a word: the words within hops edges of weight >= minWeight,
+     * at most maxNodes of them, and the edges among them. Each hop admits its candidates by
+     * descending weight of their strongest edge to the words already found. Only rows of found
+     * words are read, so the cost follows the size of the neighborhood, not of the graph.
+     */
+    public Map<String, Object> exportEgo(String word, int hops, int maxNodes, int minWeight) {
+        Integer center = ids.get(word);
+        if (center == null || maxNodes <= 0) {
+            return Map.of(
+                    "nodes", List.of(),
+                    "edges", List.of()
+            );
+        }
+
+        Set<Integer> found = new LinkedHashSet<>();
+        found.add(center);
+        List<Integer> frontier = List.of(center);
+        for (int hop = 0; hop < hops && !frontier.isEmpty() && found.size() < maxNodes; hop++) {
+            int room = maxNodes - found.size();
+            Map<Integer, Integer> candidates = new HashMap<>();
+            for (int u : frontier) {
+                // Any neighbor past the first room new ones is lighter than all of them, so it can't be admitted
+                int taken = 0;
+                for (int e = offsets[u]; e < offsets[u + 1] && weights[e] >= minWeight && taken < room; e++) {
+                    if (!found.contains(targets[e])) {
+                        candidates.merge(targets[e], weights[e], Math::max);
+                        taken++;
+                    }
+                }
+            }
+
+            List<Integer> next = new ArrayList<>(candidates.keySet());
+            next.sort((a, b) -> {
+                int byWeight = Integer.compare(candidates.get(b), candidates.get(a));
+                return byWeight != 0 ? byWeight : words[a].compareTo(words[b]);
+            });
+            frontier = next.subList(0, Math.min(room, next.size()));
+            found.addAll(frontier);
+        }
+
+        List<GraphNode> nodes = new ArrayList<>(found.size());
+        List<GraphEdge> edges = new ArrayList<>();
+        for (int u : found) {
+            nodes.add(new GraphNode(words[u]));
+            for (int e = offsets[u]; e < offsets[u + 1] && weights[e] >= minWeight; e++) {
+                int v = targets[e];
+                if (isStoredOrientation(u, v) && found.contains(v)) {
+                    edges.add(new GraphEdge(words[u], words[v], weights[e]));
+                }
+            }
+        }
+
+        return Map.of(
+                "nodes", nodes,
+                "edges", edges
+        );
+    }
+
+    // Disparity filter p-value of an edge at node u; words with a single edge carry no evidence
+    private double disparity(int u, int weight) {
+        int degree = offsets[u + 1] - offsets[u];
+        if (degree <= 1) {
+            return 1.0;
+        }
+        return Math.pow(1.0 - (double) weight / strengths[u], degree - 1);
+    }
+
+    // The topN words with the highest weighted degree, as a mask over node ids
+    private boolean[] strongest(int topN) {
+        PriorityQueue<Integer> strongest = new PriorityQueue<>(
+                (a, b) -> Long.compare(strengths[a], strengths[b]));
+        for (int u = 0; u < words.length; u++) {
+            if (strongest.size() < topN) {
+                strongest.add(u);
+            } else if (!strongest.isEmpty() && strengths[u] > strengths[strongest.peek()]) {
+                strongest.poll();
+                strongest.add(u);
+            }
+        }
+
+        boolean[] selected = new boolean[words.length];
+        strongest.forEach(u -> selected[u] = true);
+        return selected;
+    }
+
+    private EdgeFilter backbone(double alpha) {
+        return (u, v, weight) -> disparity(u, weight) < alpha || disparity(v, weight) < alpha;
+    }
+
+    /**
+     * Collects the selected edges straight from the CSR arrays: words are numbered in the
+     * order they are first reached, and edges refer to them by that number.
+     */
+    private CompactGraph compact(int minWeight, EdgeFilter filter) {
+        int[] index = new int[words.length];
+        Arrays.fill(index, -1);
+        String[] nodes = new String[16];
+        int nodeCount = 0;
+        int[] edgeSources = new int[16];
+        int[] edgeTargets = new int[16];
+        int[] edgeWeights = new int[16];
+        int edgeCount = 0;
+
+        for (int u = 0; u < words.length; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1] && weights[e] >= minWeight; e++) {
+                int v = targets[e];
+                if (!isStoredOrientation(u, v) || !filter.accept(u, v, weights[e])) continue;
+
+                if (nodeCount + 2 > nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                }
+                if (index[u] < 0) {
+                    index[u] = nodeCount;
+                    nodes[nodeCount++] = words[u];
+                }
+                if (index[v] < 0) {
+                    index[v] = nodeCount;
+                    nodes[nodeCount++] = words[v];
+                }
+
+                if (edgeCount == edgeSources.length) {
+                    edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+                    edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+                    edgeWeights = Arrays.copyOf(edgeWeights, edgeCount * 2);
+                }
+                edgeSources[edgeCount] = index[u];
+                edgeTargets[edgeCount] = index[v];
+                edgeWeights[edgeCount] = weights[e];
+                edgeCount++;
+            }
+        }
+
+        return new CompactGraph(Arrays.copyOf(nodes, nodeCount), Arrays.copyOf(edgeSources, edgeCount),
+                Arrays.copyOf(edgeTargets, edgeCount), Arrays.copyOf(edgeWeights, edgeCount));
+    }
+
+    private void forEachEdge(int minWeight, EdgeVisitor visitor) {
+        forEachEdge(minWeight, (u, v, weight) -> true, visitor);
+    }
+
+    private void forEachEdge(int minWeight, EdgeFilter filter, EdgeVisitor visitor) {
+        for (int u = 0; u < words.length; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1] && weights[e] >= minWeight; e++) {
+                int v = targets[e];
+                if (isStoredOrientation(u, v) && filter.accept(u, v, weights[e])) {
+                    visitor.visit(words[u], words[v], weights[e]);
+                }
+            }
+        }
+    }
+
+    // Each edge is stored at both ends; visit it from its lexicographically smaller word,
+    // the orientation the export has always used
+    private boolean isStoredOrientation(int u, int v) {
+        return words[u].compareTo(words[v]) < 0;
+    }
+
+    private void addEdge(Set<GraphNode> nodes, List<GraphEdge> edges, String source, String target, int weight) {
+        nodes.add(new GraphNode(source));
+        nodes.add(new GraphNode(target));
+        edges.add(new GraphEdge(source, target, weight));
+    }
+
+    @FunctionalInterface
+    private interface EdgeFilter {
+        boolean accept(int source, int target, int weight);
+    }
+
+    @FunctionalInterface
+    private interface EdgeVisitor {
+        void visit(String source, String target, int weight);
+    }
+}
@@ -0,0 +1,159 @@
+package org.platform.spidereddit.text;
+
+import org.platform.spidereddit.utility.Hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Recognizes near-duplicate comment bodies, such as copypasta, quotes and templated bot
+ * replies, across the users of a crawl. Each body is reduced to a MinHash signature of its
+ * word 3-shingles. Locality-sensitive hashing over BANDS bands of ROWS rows finds earlier
+ * bodies that share a band. A candidate counts as a duplicate if the two signatures agree on
+ * at least threshold of their positions, which estimates the Jaccard similarity of their
+ * shingles. Thread safe; the first maxBodies distinct bodies are remembered.
+ */
+public class NearDuplicateDetector {
+
+    /**
+     * Remembers nothing, so no body is a duplicate.
+     */
+    public static final NearDuplicateDetector NONE = new NearDuplicateDetector(1, 0, false);
+
+    /**
+     * A body that nearly duplicates an earlier one. Bodies of one cluster share its words.
+     */
+    public record Duplicate(int cluster, String body) {
+    }
+
+    static final int SHINGLE_WORDS = 3;
+    // Shorter bodies ("lol", "this") repeat by chance and are cheap to tag anyway
+    static final int MIN_WORDS = 8;
+    // 16 bands of 4 rows: a pair at similarity 0.8 shares a band with probability 0.9998, at 0.3 with 0.12
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+
+    private final double threshold;
+    private final int maxBodies;
+    private final boolean keepWords;
+
+    private final Map<Long, Integer> bands = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> signatures = new ConcurrentHashMap<>();
+    private final Map<Integer, List<String>> clusterWords = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * @param threshold       estimated Jaccard similarity from which a body is a duplicate, such as 0.8
+     * @param maxBodies       distinct bodies remembered; later ones are only compared
+     * @param keepWords       whether a duplicate's words still count as the user's, or are dropped
+     */
+    public NearDuplicateDetector(double threshold, int maxBodies, boolean keepWords) {
+        if (threshold <= 0 || threshold > 1 || maxBodies < 0) {
+            throw new IllegalArgumentException("Invalid duplicate detection: threshold " + threshold + ", "
+                    + maxBodies + " bodies");
+        }
+        this.threshold = threshold;
+        this.maxBodies = maxBodies;
+        this.keepWords = keepWords;
+    }
+
+    public boolean keepsWords() {
+        return keepWords;
+    }
+
+    /**
+     * Returns the earlier body's cluster if this one nearly duplicates it. Otherwise remembers
+     * the body and returns null.
+     */
+    public Duplicate check(String body) {
+        if (maxBodies == 0) {
+            return null;
+        }
+        int[] signature = signature(body);
+        if (signature == null) {
+            return null;
+        }
+
+        for (int band = 0; band < BANDS; band++) {
+            Integer candidate = bands.get(bandKey(band, signature));
+            if (candidate != null && similarity(signature, signatures.get(candidate)) >= threshold) {
+                return new Duplicate(candidate, body);
+            }
+        }
+
+        int id = nextId.getAndIncrement();
+        if (id < maxBodies) {
+            signatures.put(id, signature);
+            for (int band = 0; band < BANDS; band++) {
+                bands.putIfAbsent(bandKey(band, signature), id);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the words of a duplicate's cluster, filtering its body the first time only.
+     */
+    public List<String> words(Duplicate duplicate, Function<String, List<String>> filter) {
+        return clusterWords.computeIfAbsent(duplicate.cluster(), cluster -> filter.apply(duplicate.body()));
+    }
+
+    /**
+     * Returns the number of distinct bodies remembered.
+     */
+    public int size() {
+        return signatures.size();
+    }
+
+    // Estimated Jaccard similarity: the share of positions where the minimum hashes agree
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return equal / (double) HASHES;
+    }
+
+    // Null for bodies too short to compare
+    static int[] signature(String body) {
+        List<String> words = new ArrayList<>();
+        for (String word : body.toLowerCase(Locale.ENGLISH).split("\\W+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        if (words.size() < MIN_WORDS) {
+            return null;
+        }
+
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int i = 0; i + SHINGLE_WORDS <= words.size(); i++) {
+            long shingle = 0xcbf29ce484222325L;
+            for (int w = i; w < i + SHINGLE_WORDS; w++) {
+                shingle = (shingle ^ words.get(w).hashCode()) * 0x100000001b3L;
+            }
+            // Each position is its own hash function: the shingle mixed with the position's seed
+            for (int h = 0; h < HASHES; h++) {
+                int hash = (int) (Hashing.mix(shingle + h * 0x9e3779b97f4a7c15L) >>> 33);
+                if (hash < signature[h]) {
+                    signature[h] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(int band, int[] signature) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = Hashing.mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+}
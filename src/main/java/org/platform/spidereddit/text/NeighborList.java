@@ -0,0 +1,116 @@
+package org.platform.spidereddit.text;
+
+import org.platform.spidereddit.model.GraphEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Neighbors of a single word, kept sorted by descending co-occurrence weight.
+ * Weights only ever grow by one, so an increment swaps the entry with the first
+ * entry of the same weight and the arrays stay sorted without re-sorting.
+ */
+class NeighborList {
+
+    private final String word;
+    private final int id;
+    private String[] words = new String[4];
+    private int[] weights = new int[4];
+    private int size;
+    private long strength;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    NeighborList(String word, int id) {
+        this.word = word;
+        this.id = id;
+    }
+
+    /**
+     * Adds one to the weight of the edge to neighbor and returns the new weight.
+     */
+    synchronized int increment(String neighbor) {
+        strength++;
+        Integer position = positions.get(neighbor);
+        if (position == null) {
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            // Weight 1 is the minimum, so appending keeps the order
+            words[size] = neighbor;
+            weights[size] = 1;
+            positions.put(neighbor, size++);
+            return 1;
+        }
+
+        int i = position;
+        int weight = weights[i];
+        int first = firstIndexOfWeight(weight, i);
+        if (first != i) {
+            String displaced = words[first];
+            words[first] = neighbor;
+            words[i] = displaced;
+            weights[i] = weight;
+            positions.put(neighbor, first);
+            positions.put(displaced, i);
+        }
+        weights[first] = weight + 1;
+        return weight + 1;
+    }
+
+    /**
+     * Returns up to k edges from this word to its strongest neighbors.
+     */
+    synchronized List<GraphEdge> top(int k) {
+        int limit = Math.min(k, size);
+        List<GraphEdge> result = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            result.add(new GraphEdge(word, words[i], weights[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Copies the neighbors and their weights, still in descending weight order.
+     */
+    synchronized Copy copy() {
+        return new Copy(Arrays.copyOf(words, size), Arrays.copyOf(weights, size), strength);
+    }
+
+    /**
+     * Sum of the weights of all edges touching this word (its weighted degree).
+     * Every increment changes it, so it doubles as a modification count for snapshots.
+     */
+    synchronized long strength() {
+        return strength;
+    }
+
+    String word() {
+        return word;
+    }
+
+    int id() {
+        return id;
+    }
+
+    // Binary search over the descending weights in [0, upper] for the first entry not heavier than weight
+    private int firstIndexOfWeight(int weight, int upper) {
+        int low = 0;
+        int high = upper;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (weights[mid] > weight) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    record Copy(String[] words, int[] weights, long strength) {
+    }
+}
@@ -2,38 +2,144 @@ package org.platform.spidereddit.text;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.platform.spidereddit.model.GraphEdge;
-import org.platform.spidereddit.model.GraphNode;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 public class WordGraph {
 
-    // Nested structure: word1 -> (word2 -> count)
-    private final Map<String, Map<String, AtomicInteger>> graph = new ConcurrentHashMap<>();
+    // Rough heap cost of a word and of a stored neighbor across the live index and a snapshot
+    private static final long BYTES_PER_WORD = 256;
+    private static final long BYTES_PER_NEIGHBOR = 72;
+
+    // Symmetric adjacency index: word -> neighbors sorted by descending weight
+    private final Map<String, NeighborList> adjacency = new ConcurrentHashMap<>();
+
+    // Stable node ids, handed out as words first appear; snapshots are indexed by them
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    // Number of recorded pairs; with the per-word strengths these are the marginals for association measures
+    private final LongAdder totalPairs = new LongAdder();
+
+    // Bumped after every batch of writes, so readers can tell whether a snapshot is current
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicReference<GraphSnapshot> published = new AtomicReference<>(GraphSnapshot.EMPTY);
+    private final Object snapshotLock = new Object();
+
+    // Streams watching for edges that reach their threshold; empty unless a client is streaming a crawl
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
 
     public void recordCoOccurrences(String[] words) {
         int windowSize = 3;
+        int recorded = 0;
         for (int i = 0; i < words.length; i++) {
             String w1 = words[i];
             for (int j = i + 1; j < words.length && j <= i + windowSize; j++) {
                 String w2 = words[j];
                 if (w1.equals(w2)) continue;
 
-                // Order-insensitive edge
-                String first = w1.compareTo(w2) < 0 ? w1 : w2;
-                String second = w1.compareTo(w2) < 0 ? w2 : w1;
+                int weight1 = neighborsOf(w1).increment(w2);
+                int weight2 = neighborsOf(w2).increment(w1);
+                recorded++;
+
+                // Each weight of the smaller word's list is reached by exactly one increment, so a
+                // crossing is reported once, in the orientation the exports use
+                if (!listeners.isEmpty()) {
+                    if (w1.compareTo(w2) < 0) {
+                        notifyListeners(w1, w2, weight1);
+                    } else {
+                        notifyListeners(w2, w1, weight2);
+                    }
+                }
+            }
+        }
+
+        if (recorded > 0) {
+            totalPairs.add(recorded);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Calls the listener whenever an edge's weight reaches minWeight, that is, whenever an
+     * edge starts to appear in exports at that threshold.
+     */
+    public void addListener(int minWeight, EdgeListener listener) {
+        listeners.add(new Subscription(minWeight, listener));
+    }
+
+    public void removeListener(EdgeListener listener) {
+        listeners.removeIf(subscription -> subscription.listener() == listener);
+    }
+
+    /**
+     * Returns the current version of the graph; it changes whenever co-occurrences are recorded.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Estimates the heap held by the graph from the latest snapshot's counts. Every edge
+     * is stored twice: in both words' neighbor lists, their position maps and CSR rows.
+     */
+    public long estimatedBytes() {
+        GraphSnapshot snapshot = latestSnapshot();
+        return snapshot.nodeCount() * BYTES_PER_WORD + 2L * snapshot.edgeCount() * BYTES_PER_NEIGHBOR;
+    }
+
+    /**
+     * Returns the most recently published snapshot without rebuilding it.
+     * It may lag behind writes until the next {@link #snapshot()} call.
+     */
+    public GraphSnapshot latestSnapshot() {
+        return published.get();
+    }
+
+    /**
+     * Publishes a snapshot of the current graph and returns it. Only the rows of words
+     * that changed since the previous snapshot are read from the live index, and an
+     * unchanged graph returns the published snapshot as is.
+     */
+    public GraphSnapshot snapshot() {
+        GraphSnapshot current = published.get();
+        if (current.version() == version.get()) {
+            return current;
+        }
 
-                graph
-                        .computeIfAbsent(first, k -> new ConcurrentHashMap<>())
-                        .computeIfAbsent(second, k -> new AtomicInteger(0))
-                        .incrementAndGet();
+        synchronized (snapshotLock) {
+            current = published.get();
+            // Read before copying, so writes racing with the copy trigger the next rebuild
+            long target = version.get();
+            if (current.version() == target) {
+                return current;
             }
+
+            GraphSnapshot next = GraphSnapshot.build(adjacency, nextId.get(), current, target, totalPairs.sum());
+            published.set(next);
+            return next;
         }
     }
 
+    /**
+     * Returns the k strongest associations of a word, ordered by descending weight.
+     * Reads only the word's own adjacency entry, never the whole graph.
+     */
+    public List<GraphEdge> topNeighbors(String word, int k) {
+        NeighborList neighbors = adjacency.get(word);
+        if (neighbors == null || k <= 0) {
+            return List.of();
+        }
+        return neighbors.top(k);
+    }
+
     /**
      * Returns the word graph as a JSON string for a given min weight threshold
      */
@@ -50,26 +156,47 @@ public class WordGraph {
      * Returns the graph as a map of nodes and edges (for use in service/controller).
      */
     public Map<String, Object> exportData(int minWeight) {
-        Set<GraphNode> nodes = new HashSet<>();
-        List<GraphEdge> edges = new ArrayList<>();
-
-        for (Map.Entry<String, Map<String, AtomicInteger>> entry : graph.entrySet()) {
-            String source = entry.getKey();
-            for (Map.Entry<String, AtomicInteger> inner : entry.getValue().entrySet()) {
-                String target = inner.getKey();
-                int weight = inner.getValue().get();
-
-                if (weight >= minWeight) {
-                    nodes.add(new GraphNode(source));
-                    nodes.add(new GraphNode(target));
-                    edges.add(new GraphEdge(source, target, weight));
-                }
+        return snapshot().exportData(minWeight);
+    }
+
+    /**
+     * Returns the subgraph induced by the topN words with the highest weighted degree.
+     */
+    public Map<String, Object> exportTopNodes(int topN, int minWeight) {
+        return snapshot().exportTopNodes(topN, minWeight);
+    }
+
+    /**
+     * Returns the disparity filter backbone of the graph at level alpha.
+     */
+    public Map<String, Object> exportBackbone(double alpha, int minWeight) {
+        return snapshot().exportBackbone(alpha, minWeight);
+    }
+
+    /**
+     * Returns edges re-weighted by an association measure, keeping those scoring at least minScore.
+     */
+    public Map<String, Object> exportAssociations(AssociationMeasure measure, int minWeight, double minScore) {
+        return snapshot().exportAssociations(measure, minWeight, minScore);
+    }
+
+    private void notifyListeners(String source, String target, int weight) {
+        for (Subscription subscription : listeners) {
+            if (subscription.minWeight() == weight) {
+                subscription.listener().edgeCrossed(source, target, weight);
             }
         }
+    }
+
+    private NeighborList neighborsOf(String word) {
+        // Plain get first: computeIfAbsent may lock the bin even when the word is present
+        NeighborList neighbors = adjacency.get(word);
+        if (neighbors != null) {
+            return neighbors;
+        }
+        return adjacency.computeIfAbsent(word, w -> new NeighborList(w, nextId.getAndIncrement()));
+    }
 
-        return Map.of(
-                "nodes", nodes,
-                "edges", edges
-        );
+    private record Subscription(int minWeight, EdgeListener listener) {
     }
 }
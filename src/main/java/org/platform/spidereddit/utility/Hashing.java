@@ -0,0 +1,22 @@
+package org.platform.spidereddit.utility;
+
+/**
+ * Hash mixing shared by the probabilistic structures (Bloom filter, MinHash).
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Finalizer of MurmurHash3's 64-bit hash (fmix64): every input bit affects every output bit.
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
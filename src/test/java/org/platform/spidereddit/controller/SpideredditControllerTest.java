@@ -0,0 +1,68 @@
+package org.platform.spidereddit.controller;
+
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.model.ExportOptions;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpideredditControllerTest {
+
+    private final String etag = SpideredditController.etagOf(7, "json", MediaType.APPLICATION_JSON);
+
+    @Test
+    void testEtagOf_isWeakAndQuoted() {
+        assertEquals("W/\"7-json-json\"", etag);
+    }
+
+    @Test
+    void testMatches_sameVersionWeakOrStrong() {
+        assertTrue(SpideredditController.matches("W/\"7-json-json\"", etag));
+        assertTrue(SpideredditController.matches("\"7-json-json\"", etag));
+        assertTrue(SpideredditController.matches("W/\"3-json-json\", W/\"7-json-json\"", etag));
+        assertTrue(SpideredditController.matches("*", etag));
+    }
+
+    @Test
+    void testNegotiateFormat_compactForCborOrVendorType() {
+        ExportOptions cbor = new ExportOptions();
+        SpideredditController.negotiateFormat("application/cbor", cbor);
+        ExportOptions vendor = new ExportOptions();
+        SpideredditController.negotiateFormat(SpideredditController.COMPACT_JSON_VALUE, vendor);
+        ExportOptions json = new ExportOptions();
+        SpideredditController.negotiateFormat("application/json, */*", json);
+
+        assertEquals("compact", cbor.getFormat());
+        assertEquals("compact", vendor.getFormat());
+        assertEquals("json", json.getFormat());
+    }
+
+    @Test
+    void testMatches_otherVersionFormatOrNoHeader() {
+        assertFalse(SpideredditController.matches("W/\"8-json-json\"", etag));
+        assertFalse(SpideredditController.matches("\"17-json-json\"", etag));
+        assertFalse(SpideredditController.matches("W/\"7-compact-json\"", etag));
+        assertFalse(SpideredditController.matches(null, etag));
+    }
+
+    @Test
+    void testEtagOf_differsBetweenCborAndCompactJson() {
+        MediaType cbor = SpideredditController.negotiateMediaType("application/cbor");
+        MediaType compactJson = SpideredditController.negotiateMediaType(SpideredditController.COMPACT_JSON_VALUE);
+
+        assertEquals(MediaType.APPLICATION_CBOR, cbor);
+        assertEquals(MediaType.APPLICATION_JSON, compactJson);
+        assertNotEquals(SpideredditController.etagOf(7, "compact", cbor),
+                SpideredditController.etagOf(7, "compact", compactJson));
+    }
+
+    @Test
+    void testNegotiateMediaType_followsQualityAndDefaultsToJson() {
+        assertEquals(MediaType.APPLICATION_JSON,
+                SpideredditController.negotiateMediaType("application/cbor;q=0.5, application/json"));
+        assertEquals(MediaType.APPLICATION_CBOR,
+                SpideredditController.negotiateMediaType("application/json;q=0.5, application/cbor"));
+        assertEquals(MediaType.APPLICATION_JSON, SpideredditController.negotiateMediaType("*/*"));
+        assertEquals(MediaType.APPLICATION_JSON, SpideredditController.negotiateMediaType(null));
+    }
+}
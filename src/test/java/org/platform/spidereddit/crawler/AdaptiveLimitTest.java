@@ -0,0 +1,84 @@
+package org.platform.spidereddit.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AdaptiveLimit limit = new AdaptiveLimit(10, 2, 20, clock::get);
+
+    @Test
+    void testOnSample_growsByAboutOnePerLimitOfCallsWhileLatencyIsFlat() {
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(LATENCY, 10);
+        }
+
+        assertEquals(10, limit.limit());
+        limit.onSample(LATENCY, 10);
+        assertEquals(11, limit.limit());
+    }
+
+    @Test
+    void testOnSample_doesNotGrowAnUnusedLimit() {
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(LATENCY, 2);
+        }
+
+        assertEquals(10, limit.limit());
+    }
+
+    @Test
+    void testOnSample_neverGrowsPastTheMaximum() {
+        for (int i = 0; i < 10_000; i++) {
+            limit.onSample(LATENCY, 20);
+        }
+
+        assertEquals(20, limit.limit());
+    }
+
+    @Test
+    void testOnSample_cutsTheLimitOnALatencySpike() {
+        limit.onSample(LATENCY, 10);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limit.onSample(3 * LATENCY, 10);
+
+        assertEquals(7, limit.limit());
+    }
+
+    @Test
+    void testOnDrop_cutsAtMostOncePerBaselineLatency() {
+        limit.onSample(LATENCY, 10);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        limit.onDrop();
+        limit.onDrop();
+        assertEquals(7, limit.limit());
+
+        clock.addAndGet(LATENCY);
+        limit.onDrop();
+        assertEquals(5, limit.limit());
+    }
+
+    @Test
+    void testOnDrop_neverCutsBelowTheMinimum() {
+        for (int i = 0; i < 20; i++) {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            limit.onDrop();
+        }
+
+        assertEquals(2, limit.limit());
+    }
+
+    @Test
+    void testConstructor_rejectsInitialLimitOutsideTheRange() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(1, 2, 20));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(30, 2, 20));
+    }
+}
@@ -0,0 +1,58 @@
+package org.platform.spidereddit.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testAdd_reportsNewEntriesOnce() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertTrue(filter.add("alice"));
+        assertFalse(filter.add("alice"));
+        assertTrue(filter.mightContain("alice"));
+    }
+
+    @Test
+    void testMightContain_hasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+    }
+
+    @Test
+    void testMightContain_falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testSizeInBytes_isAboutTenBitsPerEntryAtOnePercent() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+
+        assertTrue(filter.sizeInBytes() < 130_000, "bytes: " + filter.sizeInBytes());
+    }
+
+    @Test
+    void testConstructor_rejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,139 @@
+package org.platform.spidereddit.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.crawler.CrawlCoalescer.Crawl;
+import org.platform.spidereddit.crawler.CrawlCoalescer.Outcome;
+import org.platform.spidereddit.crawler.CrawlCoalescer.Result;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlCoalescerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CrawlCoalescer coalescer = new CrawlCoalescer(100, clock::get);
+    private final AtomicInteger crawls = new AtomicInteger();
+
+    private Crawl crawl(String id) {
+        crawls.incrementAndGet();
+        return new Crawl(id, 10, clock.get());
+    }
+
+    @Test
+    void testCrawl_servesRepeatWithinTtlFromCache() throws Exception {
+        Result first = coalescer.crawl("abc", () -> crawl("first"));
+        clock.addAndGet(99);
+        Result second = coalescer.crawl("abc", () -> crawl("second"));
+
+        assertEquals(Outcome.MISS, first.outcome());
+        assertEquals(Outcome.HIT, second.outcome());
+        assertEquals("first", second.crawl().crawlId());
+        assertEquals(1, crawls.get());
+    }
+
+    @Test
+    void testCrawl_crawlsAgainAfterTtl() throws Exception {
+        coalescer.crawl("abc", () -> crawl("first"));
+        clock.addAndGet(100);
+        Result second = coalescer.crawl("abc", () -> crawl("second"));
+
+        assertEquals(Outcome.MISS, second.outcome());
+        assertEquals("second", second.crawl().crawlId());
+        assertEquals(2, crawls.get());
+    }
+
+    @Test
+    void testCrawl_differentPostsDoNotShare() throws Exception {
+        coalescer.crawl("abc", () -> crawl("first"));
+        Result other = coalescer.crawl("xyz", () -> crawl("second"));
+
+        assertEquals(Outcome.MISS, other.outcome());
+        assertEquals(2, crawls.get());
+    }
+
+    @Test
+    void testCrawl_concurrentRequestsShareOneCrawl() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Result> leader = executor.submit(() -> coalescer.crawl("abc", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return crawl("leader");
+            }));
+            started.await();
+
+            Future<Result> follower1 = executor.submit(() -> coalescer.crawl("abc", () -> crawl("follower")));
+            Future<Result> follower2 = executor.submit(() -> coalescer.crawl("abc", () -> crawl("follower")));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals(Outcome.MISS, leader.get(5, TimeUnit.SECONDS).outcome());
+            assertEquals(Outcome.COALESCED, follower1.get(5, TimeUnit.SECONDS).outcome());
+            assertEquals("leader", follower2.get(5, TimeUnit.SECONDS).crawl().crawlId());
+            assertEquals(1, crawls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCrawl_failureIsNotCached() throws Exception {
+        assertThrows(IOException.class, () -> coalescer.crawl("abc", () -> {
+            throw new IOException("Reddit is down");
+        }));
+        Result retry = coalescer.crawl("abc", () -> crawl("retry"));
+
+        assertEquals(Outcome.MISS, retry.outcome());
+        assertEquals(1, crawls.get());
+    }
+
+    @Test
+    void testClaim_skipsRunningAndFreshPosts() throws Exception {
+        CompletableFuture<Crawl> claim = coalescer.claim("abc");
+        assertNotNull(claim);
+        assertNull(coalescer.claim("abc"));
+
+        claim.complete(crawl("batch"));
+        assertNull(coalescer.claim("abc"));
+        assertEquals(Outcome.HIT, coalescer.crawl("abc", () -> crawl("single")).outcome());
+
+        clock.addAndGet(100);
+        assertNotNull(coalescer.claim("abc"));
+    }
+
+    @Test
+    void testFail_releasesClaimForRetry() throws Exception {
+        CompletableFuture<Crawl> claim = coalescer.claim("abc");
+        coalescer.fail("abc", claim, new IOException("Reddit is down"));
+
+        assertEquals(Outcome.MISS, coalescer.crawl("abc", () -> crawl("retry")).outcome());
+    }
+
+    @Test
+    void testEvictExpired_dropsOnlyStaleCrawls() throws Exception {
+        coalescer.crawl("old", () -> crawl("old"));
+        clock.addAndGet(60);
+        coalescer.crawl("new", () -> crawl("new"));
+        clock.addAndGet(60);
+
+        coalescer.evictExpired();
+
+        assertEquals(1, coalescer.size());
+        assertEquals(Outcome.HIT, coalescer.crawl("new", () -> crawl("again")).outcome());
+    }
+}
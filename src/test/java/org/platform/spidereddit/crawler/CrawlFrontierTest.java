@@ -0,0 +1,98 @@
+package org.platform.spidereddit.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.crawler.CrawlFrontier.Limits;
+import org.platform.spidereddit.crawler.CrawlFrontier.Result;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlFrontierTest {
+
+    // post -> commenters, and user -> posts commented on
+    private final Map<String, Set<String>> commenters = Map.of(
+            "seed", Set.of("alice", "bob"),
+            "p1", Set.of("alice", "carol"),
+            "p2", Set.of("dave"),
+            "p3", Set.of("erin"));
+    private final Map<String, List<String>> commented = Map.of(
+            "alice", List.of("seed", "p1", "p2"),
+            "bob", List.of("p1", "p3"),
+            "carol", List.of("p3"),
+            "dave", List.of(),
+            "erin", List.of());
+
+    private final List<Set<String>> hops = new ArrayList<>();
+    private final List<String> discovered = new ArrayList<>();
+
+    private Result crawl(Limits limits) {
+        CrawlFrontier frontier = new CrawlFrontier(limits,
+                postId -> {
+                    synchronized (discovered) {
+                        discovered.add(postId);
+                    }
+                    return commenters.getOrDefault(postId, Set.of());
+                },
+                (usernames, postsCommented) -> {
+                    hops.add(usernames);
+                    usernames.forEach(user -> postsCommented.accept(commented.get(user)));
+                },
+                Runnable::run);
+        return frontier.crawl("seed");
+    }
+
+    @Test
+    void testCrawl_depthOneCrawlsOnlyTheSeedCommenters() {
+        Result result = crawl(new Limits(1, 5, 100));
+
+        assertEquals(List.of(Set.of("alice", "bob")), hops);
+        assertEquals(new Result(1, 2, 1), result);
+    }
+
+    @Test
+    void testCrawl_visitsEachUserAndPostOnce() {
+        Result result = crawl(new Limits(3, 5, 100));
+
+        assertEquals(List.of(Set.of("alice", "bob"), Set.of("carol", "dave", "erin")), hops);
+        assertEquals(4, discovered.size());
+        assertEquals(Set.of("seed", "p1", "p2", "p3"), Set.copyOf(discovered));
+        assertEquals(new Result(2, 5, 4), result);
+    }
+
+    @Test
+    void testCrawl_followsAtMostFanOutPostsPerUser() {
+        crawl(new Limits(2, 1, 100));
+
+        // alice's first post is the seed and bob's is p1, so only p1 is followed
+        assertEquals(List.of("seed", "p1"), discovered);
+        assertEquals(Set.of("carol"), hops.get(1));
+    }
+
+    @Test
+    void testCrawl_stopsAtTheUserBudget() {
+        Result result = crawl(new Limits(3, 5, 3));
+
+        assertEquals(3, result.users());
+        assertEquals(1, hops.get(1).size());
+    }
+
+    @Test
+    void testCrawl_skipsPostsWhoseDiscoveryFails() {
+        CrawlFrontier frontier = new CrawlFrontier(new Limits(2, 5, 100),
+                postId -> {
+                    throw new IOException("boom");
+                },
+                (usernames, postsCommented) -> hops.add(usernames),
+                Runnable::run);
+
+        Result result = frontier.crawl("seed");
+
+        assertEquals(List.of(Set.of()), hops);
+        assertEquals(0, result.users());
+    }
+}
@@ -216,4 +216,16 @@ class CrawlManagerTest {
             testThread.join(2000); // Wait for completion
         });
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testCrawlUsers_failsWhenInterrupted() {
+        crawlManager = new CrawlManager(2, mockWordGraph, testAccessToken);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CrawlAbandonedException.class, () -> crawlManager.crawlUsers(Set.of("user1", "user2")));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
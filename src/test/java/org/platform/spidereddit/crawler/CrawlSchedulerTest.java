@@ -0,0 +1,187 @@
+package org.platform.spidereddit.crawler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.crawler.CrawlScheduler.Fetch;
+import org.platform.spidereddit.crawler.CrawlScheduler.Job;
+import org.platform.spidereddit.crawler.CrawlScheduler.Progress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlSchedulerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+    private final List<CompletableFuture<Void>> running = Collections.synchronizedList(new ArrayList<>());
+    private CrawlScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    private List<Fetch> fetches(String crawlId, int users) {
+        return IntStream.range(0, users)
+                .<Fetch>mapToObj(i -> workers -> {
+                    CompletableFuture<Void> fetch = new CompletableFuture<>();
+                    started.add(crawlId);
+                    running.add(fetch);
+                    return fetch;
+                })
+                .toList();
+    }
+
+    // Completes the oldest fetch still running
+    private void completeNext() {
+        running.stream().filter(fetch -> !fetch.isDone()).findFirst().orElseThrow().complete(null);
+    }
+
+    @Test
+    void testSubmit_startsAtMostSlotsFetches() {
+        scheduler = new CrawlScheduler(() -> 2, 2, 0, clock::get);
+        scheduler.submit("a", fetches("a", 5));
+
+        assertEquals(2, started.size());
+        completeNext();
+        assertEquals(3, started.size());
+    }
+
+    @Test
+    void testSubmit_smallJobIsNotStuckBehindBigOne() {
+        scheduler = new CrawlScheduler(() -> 1, 1, 0, clock::get);
+        scheduler.submit("big", fetches("big", 500));
+        scheduler.submit("small", fetches("small", 3));
+
+        for (int i = 0; i < 5; i++) {
+            completeNext();
+        }
+
+        assertEquals(List.of("big", "small", "small", "small", "big", "big"), started);
+    }
+
+    @Test
+    void testSubmit_equalJobsShareSlotsEvenly() {
+        scheduler = new CrawlScheduler(() -> 1, 1, 0, clock::get);
+        scheduler.submit("a", fetches("a", 200));
+        scheduler.submit("b", fetches("b", 200));
+
+        for (int i = 0; i < 5; i++) {
+            completeNext();
+        }
+
+        assertEquals(List.of("a", "b", "a", "b", "a", "b"), started);
+    }
+
+    @Test
+    void testSubmit_completesJobOnceEveryFetchCompleted() {
+        scheduler = new CrawlScheduler(() -> 2, 2, 0, clock::get);
+        Job job = scheduler.submit("a", fetches("a", 2));
+
+        completeNext();
+        assertFalse(job.completion().isDone());
+        completeNext();
+        assertTrue(job.completion().isDone());
+        assertEquals(0, scheduler.jobCount());
+        assertTrue(scheduler.submit("empty", List.of()).completion().isDone());
+    }
+
+    @Test
+    void testCancel_dropsQueuedUsersAndWaitsForRunningOnes() {
+        scheduler = new CrawlScheduler(() -> 1, 1, 0, clock::get);
+        Job job = scheduler.submit("a", fetches("a", 10));
+
+        job.cancel();
+        assertEquals(0, scheduler.queuedUsers());
+        assertFalse(job.completion().isDone());
+
+        completeNext();
+        assertTrue(job.completion().isDone());
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    void testStarted_completesWithTheJobsFirstFetch() {
+        scheduler = new CrawlScheduler(() -> 1, 1, 0, clock::get);
+        Job first = scheduler.submit("a", fetches("a", 1));
+        Job second = scheduler.submit("b", fetches("b", 1));
+
+        assertTrue(first.started().isDone());
+        assertFalse(second.started().isDone());
+        completeNext();
+        assertTrue(second.started().isDone());
+        assertFalse(first.dropped());
+    }
+
+    @Test
+    void testClose_dropsTheUsersOfJobsNotStarted() {
+        scheduler = new CrawlScheduler(() -> 1, 1, 0, clock::get);
+        scheduler.submit("a", fetches("a", 1));
+        Job queued = scheduler.submit("b", fetches("b", 1));
+
+        scheduler.close();
+        assertTrue(queued.completion().isDone());
+        assertFalse(queued.started().isDone());
+        assertTrue(queued.dropped());
+    }
+
+    @Test
+    void testSubmit_startsNoMoreCallsThanTheRateAllows() {
+        // 60 calls a minute is one user every two seconds, after a burst of one user per slot
+        scheduler = new CrawlScheduler(() -> 2, 2, 60, clock::get);
+        scheduler.submit("a", fetches("a", 4));
+        assertEquals(2, started.size());
+
+        completeNext();
+        assertEquals(2, started.size());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        completeNext();
+        assertEquals(3, started.size());
+    }
+
+    @Test
+    void testSubmit_followsTheAdaptiveLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(4, 1, 8, clock::get);
+        scheduler = new CrawlScheduler(limit::limit, limit.maxLimit(), 0, clock::get);
+        scheduler.submit("a", fetches("a", 10));
+        assertEquals(4, started.size());
+
+        // Cut to 3: no new fetch starts until fewer than 3 are running
+        limit.onDrop();
+        completeNext();
+        assertEquals(4, started.size());
+        completeNext();
+        assertEquals(5, started.size());
+    }
+
+    @Test
+    void testProgress_ranksJobsForTheNextSlotAndEstimatesCompletion() {
+        scheduler = new CrawlScheduler(() -> 1, 1, 0, clock::get);
+        scheduler.submit("a", fetches("a", 200));
+        scheduler.submit("b", fetches("b", 200));
+
+        Progress a = scheduler.progress("a").orElseThrow();
+        Progress b = scheduler.progress("b").orElseThrow();
+        assertEquals(new Progress("a", 200, 0, 1, 199, 2, null), a);
+        assertEquals(1, b.position());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        completeNext();
+
+        // b's fetch is running, and each job gets half of one user a second
+        Progress next = scheduler.progress("b").orElseThrow();
+        assertEquals(199, next.queued());
+        assertEquals(2, next.position());
+        assertEquals(199 * 2 + 1, next.etaSeconds(), 0.001);
+        assertTrue(scheduler.progress("c").isEmpty());
+        assertEquals(2, scheduler.progress().size());
+    }
+}
@@ -0,0 +1,128 @@
+package org.platform.spidereddit.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.text.WordGraph;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private CrawlMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new CrawlMetrics(registry);
+    }
+
+    @Test
+    void testRequest_taggedByEndpointAndStatus() {
+        metrics.request("user_comments", "200", 1_000_000);
+        metrics.request("user_comments", "429", 1_000_000);
+        metrics.request("user_comments", "429", 1_000_000);
+
+        assertEquals(1, registry.get("spidereddit.reddit.requests")
+                .tag("endpoint", "user_comments").tag("status", "200").timer().count());
+        assertEquals(2, registry.get("spidereddit.reddit.requests")
+                .tag("endpoint", "user_comments").tag("status", "429").timer().count());
+    }
+
+    @Test
+    void testEndpoint_dropsUserNamesAndPostIds() {
+        assertEquals("token", RequestMetricsInterceptor.endpoint("/api/v1/access_token"));
+        assertEquals("post_comments", RequestMetricsInterceptor.endpoint("/comments/abc123.json"));
+        assertEquals("user_comments", RequestMetricsInterceptor.endpoint("/user/someone/comments"));
+        assertEquals("user_submitted", RequestMetricsInterceptor.endpoint("/user/someone/submitted"));
+        assertEquals("subreddit_listing", RequestMetricsInterceptor.endpoint("/r/java/top.json"));
+        assertEquals("other", RequestMetricsInterceptor.endpoint("/api/v1/me"));
+    }
+
+    @Test
+    void testBatchUsers_countsCommentersFetchedOnce() {
+        metrics.batchUsers(120, 90);
+
+        assertEquals(30, registry.get("spidereddit.crawl.batch.duplicate.users").counter().count());
+    }
+
+    @Test
+    void testAuthorFiltered_countsReasonsAndSavedCalls() {
+        metrics.authorFiltered("bot");
+        metrics.authorFiltered("bot");
+        metrics.authorFiltered("suspended");
+
+        assertEquals(2, registry.get("spidereddit.crawl.filtered.users").tag("reason", "bot").counter().count());
+        assertEquals(6, registry.get("spidereddit.crawl.filter.saved.requests").counter().count());
+    }
+
+    @Test
+    void testHedged_countsDuplicatesByResultAndRecordsSavings() {
+        metrics.hedged(true);
+        metrics.hedged(false);
+        metrics.hedged(false);
+        metrics.hedgeSaved(TimeUnit.MILLISECONDS.toNanos(300));
+
+        assertEquals(1, registry.get("spidereddit.reddit.hedges").tag("result", "won").counter().count());
+        assertEquals(2, registry.get("spidereddit.reddit.hedges").tag("result", "lost").counter().count());
+        assertEquals(300, registry.get("spidereddit.reddit.hedge.saved").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testStage_recordsEachStageSeparately() {
+        metrics.stage(metrics.start(), "auth");
+        metrics.stage(metrics.start(), "discovery");
+        metrics.stage(metrics.start(), "discovery");
+
+        assertEquals(1, registry.get("spidereddit.crawl.stage").tag("stage", "auth").timer().count());
+        assertEquals(2, registry.get("spidereddit.crawl.stage").tag("stage", "discovery").timer().count());
+    }
+
+    @Test
+    void testExecutorGauges_sumRunningExecutors() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            metrics.executorStarted(executor);
+            executor.submit(() -> {
+                running.countDown();
+                release.await();
+                return null;
+            });
+            executor.submit(() -> null);
+            running.await();
+
+            assertEquals(1.0, registry.get("spidereddit.executor.active").gauge().value());
+            assertEquals(1.0, registry.get("spidereddit.executor.queued").gauge().value());
+            assertEquals(1.0, registry.get("spidereddit.crawl.active").gauge().value());
+
+            metrics.executorStopped(executor);
+
+            assertEquals(0.0, registry.get("spidereddit.executor.active").gauge().value());
+            assertEquals(0.0, registry.get("spidereddit.crawl.active").gauge().value());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testGraphGauges_readLatestSnapshot() {
+        WordGraph wordGraph = new WordGraph();
+        metrics.registerGraph(wordGraph);
+        wordGraph.recordCoOccurrences(new String[]{"reddit", "graph", "word"});
+        wordGraph.snapshot();
+
+        assertEquals(3.0, registry.get("spidereddit.graph.nodes").gauge().value());
+        assertEquals(3.0, registry.get("spidereddit.graph.edges").gauge().value());
+        assertTrue(registry.get("spidereddit.graph.size").gauge().value() > 0);
+    }
+}
@@ -0,0 +1,99 @@
+package org.platform.spidereddit.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.metrics.CrawlTrace.Span;
+import org.platform.spidereddit.model.TraceSpan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlTraceTest {
+
+    @Test
+    void testRecord_keepsSpansInOrderTheyEnded() {
+        CrawlTrace trace = new CrawlTrace("crawl", "https://reddit.com/comments/abc", 16);
+
+        long auth = trace.now();
+        trace.record(Span.AUTH, null, auth);
+        long fetch = trace.now();
+        trace.record(Span.USER_COMMENTS, "someone", fetch);
+
+        List<TraceSpan> spans = trace.spans();
+        assertEquals(2, spans.size());
+        assertEquals("auth", spans.get(0).getName());
+        assertEquals("user_comments", spans.get(1).getName());
+        assertEquals("someone", spans.get(1).getDetail());
+        assertTrue(spans.get(1).getStartMs() >= spans.get(0).getStartMs());
+        assertTrue(spans.get(1).getDurationMs() >= 0);
+    }
+
+    @Test
+    void testRecord_dropsSpansPastCapacity() {
+        CrawlTrace trace = new CrawlTrace("crawl", "url", 2);
+        for (int i = 0; i < 5; i++) {
+            trace.record(Span.MERGE, "user" + i, trace.now());
+        }
+
+        assertEquals(2, trace.spans().size());
+        assertEquals(3, trace.toMap().get("dropped"));
+    }
+
+    @Test
+    void testRecord_concurrentWritersLoseNothing() throws Exception {
+        CrawlTrace trace = new CrawlTrace("crawl", "url", 10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    trace.record(Span.TAGGING, "user", trace.now());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(8_000, trace.spans().size());
+    }
+
+    @Test
+    void testNone_recordsNothing() {
+        CrawlTrace.NONE.record(Span.USER, "someone", CrawlTrace.NONE.now());
+
+        assertTrue(CrawlTrace.NONE.spans().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testToChromeTrace_oneCompleteEventPerSpan() {
+        CrawlTrace trace = new CrawlTrace("crawl", "url", 16);
+        trace.record(Span.DISCOVERY, "abc", trace.now());
+        trace.record(Span.EXPORT, null, trace.now());
+        trace.finish();
+
+        List<Map<String, Object>> events = (List<Map<String, Object>>) trace.toChromeTrace().get("traceEvents");
+
+        assertEquals(2, events.size());
+        assertEquals("discovery", events.get(0).get("name"));
+        assertEquals("X", events.get(0).get("ph"));
+        assertEquals(Map.of("detail", "abc"), events.get(0).get("args"));
+        assertFalse(events.get(1).containsKey("args"));
+        assertNotNull(trace.toMap().get("durationMs"));
+    }
+
+    @Test
+    void testCrawlTraces_evictsOldestTrace() {
+        CrawlTraces traces = new CrawlTraces(2, 16);
+        CrawlTrace first = traces.start("a");
+        CrawlTrace second = traces.start("b");
+        CrawlTrace third = traces.start("c");
+
+        assertTrue(traces.get(first.id()).isEmpty());
+        assertSame(second, traces.get(second.id()).orElseThrow());
+        assertSame(third, traces.get(third.id()).orElseThrow());
+    }
+}
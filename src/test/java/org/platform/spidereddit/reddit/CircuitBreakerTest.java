@@ -0,0 +1,127 @@
+package org.platform.spidereddit.reddit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.platform.spidereddit.reddit.CircuitBreaker.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(20);
+
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        // Opens at half the calls failed or 80% slower than 10 s, for 30 s, probing with 2 trial calls
+        breaker = new CircuitBreaker(0.5, 0.8, TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(30), 2,
+                CrawlMetrics.noop(), clock::get);
+    }
+
+    private void calls(int count, boolean failed, long latency) throws Exception {
+        for (int i = 0; i < count; i++) {
+            breaker.acquire();
+            breaker.onResult(failed, latency);
+        }
+    }
+
+    private void open() throws Exception {
+        calls(CircuitBreaker.MIN_CALLS, true, FAST);
+        assertEquals(State.OPEN, breaker.state());
+    }
+
+    @Test
+    void testOnResult_staysClosedUntilEnoughCallsWereMade() throws Exception {
+        calls(CircuitBreaker.MIN_CALLS - 1, true, FAST);
+
+        assertEquals(State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testOnResult_opensOnTheFailureRate() throws Exception {
+        calls(CircuitBreaker.MIN_CALLS, false, FAST);
+        calls(CircuitBreaker.MIN_CALLS - 1, true, FAST);
+        assertEquals(State.CLOSED, breaker.state());
+
+        calls(1, true, FAST);
+        assertEquals(State.OPEN, breaker.state());
+    }
+
+    @Test
+    void testOnResult_opensOnTheSlowCallRate() throws Exception {
+        calls(4, false, FAST);
+        calls(16, false, SLOW);
+
+        assertEquals(State.OPEN, breaker.state());
+    }
+
+    @Test
+    void testOnResult_forgetsCallsOlderThanTheWindow() throws Exception {
+        calls(CircuitBreaker.WINDOW, false, FAST);
+        calls(CircuitBreaker.WINDOW / 2 - 1, true, FAST);
+        calls(CircuitBreaker.WINDOW, false, FAST);
+        calls(CircuitBreaker.WINDOW / 2 - 1, true, FAST);
+
+        assertEquals(State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testAcquire_failsFastWhileOpen() throws Exception {
+        open();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        RedditUnavailableException e = assertThrows(RedditUnavailableException.class, breaker::acquire);
+        assertEquals(20, e.getRetryAfterSeconds());
+        assertThrows(RedditUnavailableException.class, breaker::checkAvailable);
+    }
+
+    @Test
+    void testAcquire_closesAfterTheTrialCallsSucceed() throws Exception {
+        open();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        breaker.checkAvailable();
+        breaker.acquire();
+        breaker.acquire();
+        assertEquals(State.HALF_OPEN, breaker.state());
+        // Only the trial calls go through until they are answered
+        assertThrows(RedditUnavailableException.class, breaker::acquire);
+
+        breaker.onResult(false, FAST);
+        breaker.onResult(false, FAST);
+        assertEquals(State.CLOSED, breaker.state());
+        breaker.acquire();
+    }
+
+    @Test
+    void testAcquire_opensAgainWhenATrialCallFails() throws Exception {
+        open();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        breaker.acquire();
+        breaker.onResult(false, SLOW);
+
+        assertEquals(State.OPEN, breaker.state());
+        assertThrows(RedditUnavailableException.class, breaker::acquire);
+    }
+
+    @Test
+    void testOnCancelled_returnsTheTrialCall() throws Exception {
+        open();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        breaker.acquire();
+        breaker.acquire();
+        breaker.onCancelled();
+
+        breaker.acquire();
+        assertEquals(State.HALF_OPEN, breaker.state());
+    }
+}
@@ -0,0 +1,168 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialPoolTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private final Map<String, AtomicInteger> tokensIssued = new ConcurrentHashMap<>();
+    // Per app: the status and remaining budget its API calls are answered with
+    private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+    private final Map<String, Integer> remaining = new ConcurrentHashMap<>();
+    private final Set<String> refusedTokens = ConcurrentHashMap.newKeySet();
+    private final Set<String> refusedApps = ConcurrentHashMap.newKeySet();
+    private final Set<String> failingApps = ConcurrentHashMap.newKeySet();
+    private CredentialPool pool;
+    private OkHttpClient api;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String authorization = request.getHeader("Authorization");
+                if (request.getPath().equals("/api/v1/access_token")) {
+                    String app = new String(Base64.getDecoder().decode(authorization.substring("Basic ".length())),
+                            StandardCharsets.UTF_8).split(":")[0];
+                    if (refusedApps.contains(app)) {
+                        return new MockResponse().setResponseCode(401);
+                    }
+                    if (failingApps.contains(app)) {
+                        return new MockResponse().setResponseCode(503);
+                    }
+                    int issued = tokensIssued.computeIfAbsent(app, ignored -> new AtomicInteger()).incrementAndGet();
+                    return new MockResponse().setBody(
+                            "{ \"access_token\": \"" + app + "-" + issued + "\", \"expires_in\": 3600 }");
+                }
+
+                String token = authorization.substring("Bearer ".length());
+                String app = token.split("-")[0];
+                if (refusedTokens.contains(token) || refusedTokens.contains(app)) {
+                    return new MockResponse().setResponseCode(401);
+                }
+                return new MockResponse()
+                        .setResponseCode(statuses.getOrDefault(app, 200))
+                        .setHeader("X-Ratelimit-Remaining", remaining.getOrDefault(app, 600) + ".0")
+                        .setHeader("X-Ratelimit-Reset", "300")
+                        .setBody(token);
+            }
+        });
+        server.start();
+
+        List<CredentialPool.Credential> credentials = List.of(
+                new CredentialPool.Credential("a", "secret", "user-a", "password"),
+                new CredentialPool.Credential("b", "secret", "user-b", "password"));
+        pool = CredentialPool.of(credentials, new OkHttpClient(), new ObjectMapper(),
+                server.url("/api/v1/access_token").toString(), CrawlMetrics.noop());
+        api = new OkHttpClient.Builder().addInterceptor(pool).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    // Returns the token the call was answered for, or the status if it failed
+    private String call() throws IOException {
+        Request request = new Request.Builder()
+                .url(server.url("/user/someone/comments"))
+                .header("Authorization", "Bearer caller-token")
+                .build();
+        try (Response response = api.newCall(request).execute()) {
+            return response.isSuccessful() ? response.body().string() : String.valueOf(response.code());
+        }
+    }
+
+    @Test
+    void testIntercept_sendsEachCallWithTheCredentialWithMostBudgetLeft() throws Exception {
+        remaining.put("a", 10);
+        remaining.put("b", 500);
+
+        assertEquals(List.of("a-1", "b-1", "b-1"), List.of(call(), call(), call()));
+        assertEquals(1, tokensIssued.get("a").get());
+    }
+
+    @Test
+    void testIntercept_restsRateLimitedCredentialAndRetriesWithAnother() throws Exception {
+        statuses.put("a", 429);
+
+        assertEquals("b-1", call());
+        assertEquals("b-1", call());
+        assertEquals(1, pool.activeCount());
+    }
+
+    @Test
+    void testIntercept_answersWithTheLastRefusalWhenEveryCredentialRests() throws Exception {
+        statuses.put("a", 429);
+        statuses.put("b", 429);
+
+        assertEquals("429", call());
+        assertEquals(0, pool.activeCount());
+    }
+
+    @Test
+    void testIntercept_refreshesARevokedTokenOnce() throws Exception {
+        refusedTokens.add("a-1");
+
+        assertEquals("a-2", call());
+        assertEquals(2, pool.activeCount());
+    }
+
+    @Test
+    void testIntercept_restsCredentialWhoseFreshTokenIsRefused() throws Exception {
+        refusedTokens.add("a");
+
+        assertEquals("b-1", call());
+        assertEquals(2, tokensIssued.get("a").get());
+        assertEquals(1, pool.activeCount());
+    }
+
+    @Test
+    void testToken_skipsCredentialsThatCannotGetOne() throws Exception {
+        refusedApps.add("a");
+
+        assertEquals("b-1", pool.token());
+        assertEquals(1, pool.activeCount());
+
+        refusedApps.add("b");
+        CredentialPool refused = CredentialPool.of(List.of(new CredentialPool.Credential("b", "secret", "u", "p")),
+                new OkHttpClient(), new ObjectMapper(), server.url("/api/v1/access_token").toString(),
+                CrawlMetrics.noop());
+        assertThrows(IOException.class, refused::token);
+    }
+
+    @Test
+    void testToken_keepsCredentialsInRotationWhenTheTokenEndpointFails() {
+        failingApps.add("a");
+        failingApps.add("b");
+
+        assertThrows(IOException.class, pool::token);
+        assertThrows(IOException.class, this::call);
+        assertEquals(2, pool.activeCount());
+
+        failingApps.clear();
+        assertDoesNotThrow(pool::token);
+    }
+}
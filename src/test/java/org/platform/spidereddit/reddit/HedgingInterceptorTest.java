@@ -0,0 +1,127 @@
+package org.platform.spidereddit.reddit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingInterceptorTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OkHttpClient api = new OkHttpClient();
+    private HedgingInterceptor hedging;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // The first call stalls; any later one answers at once
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return calls.incrementAndGet() == 1
+                        ? new MockResponse().setBody("slow").setHeadersDelay(2, TimeUnit.SECONDS)
+                        : new MockResponse().setBody("fast");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        hedging.close();
+        server.close();
+    }
+
+    private OkHttpClient hedged(double maxHedgeRatio) {
+        hedging = new HedgingInterceptor(api, maxHedgeRatio, new CrawlMetrics(registry));
+        // Reads so far took 50 ms
+        for (int i = 0; i < HedgingInterceptor.MIN_SAMPLES; i++) {
+            hedging.onSample(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        return api.newBuilder().addInterceptor(hedging).build();
+    }
+
+    private String get(OkHttpClient client) throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(server.url("/user/someone/comments")).build())
+                .execute()) {
+            return response.body().string();
+        }
+    }
+
+    @Test
+    void testOnSample_hedgesAfterThePercentileOfRecentReads() {
+        hedging = new HedgingInterceptor(api, 0.05, CrawlMetrics.noop());
+        for (int i = 1; i < HedgingInterceptor.MIN_SAMPLES; i++) {
+            hedging.onSample(i);
+        }
+        assertEquals(0, hedging.delayNanos());
+
+        hedging.onSample(HedgingInterceptor.MIN_SAMPLES);
+        assertEquals(19, hedging.delayNanos());
+    }
+
+    @Test
+    void testIntercept_returnsTheDuplicateOfAStalledRead() throws Exception {
+        OkHttpClient client = hedged(1.0);
+
+        long start = System.nanoTime();
+        assertEquals("fast", get(client));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(2, calls.get());
+        assertEquals(1.0, hedging.hedgeRate());
+        assertEquals(1, registry.get("spidereddit.reddit.hedges").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void testIntercept_sendsNoDuplicateBeyondTheHedgeBudget() throws Exception {
+        OkHttpClient client = hedged(0);
+
+        assertEquals("slow", get(client));
+        assertEquals(1, calls.get());
+        assertEquals(0.0, hedging.hedgeRate());
+    }
+
+    @Test
+    void testIntercept_neverHedgesWrites() throws Exception {
+        OkHttpClient client = hedged(1.0);
+        Request post = new Request.Builder()
+                .url(server.url("/api/v1/access_token"))
+                .post(RequestBody.create("grant_type=password", MediaType.get("application/x-www-form-urlencoded")))
+                .build();
+
+        try (Response response = client.newCall(post).execute()) {
+            assertEquals("slow", response.body().string());
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testIntercept_neverHedgesAsyncCalls() throws Exception {
+        OkHttpClient client = hedged(1.0);
+        Request read = new Request.Builder().url(server.url("/user/someone/comments")).build();
+
+        try (Response response = AsyncCalls.enqueue(client, read).get(5, TimeUnit.SECONDS)) {
+            assertEquals("slow", response.body().string());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0.0, hedging.hedgeRate());
+    }
+}
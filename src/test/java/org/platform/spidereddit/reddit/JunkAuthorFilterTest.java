@@ -0,0 +1,78 @@
+package org.platform.spidereddit.reddit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JunkAuthorFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JunkAuthorFilter filter = new JunkAuthorFilter(Set.of("SpamAccount"));
+
+    private JsonNode comment(String json) throws Exception {
+        return objectMapper.readTree(json);
+    }
+
+    @Test
+    void testReject_knownAndConfiguredBots() throws Exception {
+        JsonNode comment = comment("""
+                { "author": "AutoModerator", "author_fullname": "t2_6l4z3", "body": "Rules" }
+                """);
+
+        assertEquals("bot", filter.reject("automoderator", List.of(comment)));
+        assertEquals("bot", filter.reject("spamaccount", List.of(comment)));
+    }
+
+    @Test
+    void testReject_botLikeNames() throws Exception {
+        assertEquals("bot", filter.reject("remindmebot", List.of(comment("""
+                { "author": "RemindMeBot", "author_fullname": "t2_1", "body": "I will be messaging you" }
+                """))));
+        assertEquals("bot", filter.reject("timezone_bot", List.of(comment("""
+                { "author": "timezone_bot", "author_fullname": "t2_2", "body": "12:00 UTC" }
+                """))));
+        assertNull(filter.reject("abbot", List.of(comment("""
+                { "author": "abbot", "author_fullname": "t2_3", "body": "hello" }
+                """))));
+    }
+
+    @Test
+    void testReject_suspendedAccounts() throws Exception {
+        JsonNode comment = comment("""
+                { "author": "gone", "body": "hello" }
+                """);
+
+        assertEquals("suspended", filter.reject("gone", List.of(comment)));
+    }
+
+    @Test
+    void testReject_authorsWhoseEveryCommentIsBotLike() throws Exception {
+        JsonNode notice = comment("""
+                { "author": "mod", "author_fullname": "t2_4", "body": "Locked", "distinguished": "moderator" }
+                """);
+        JsonNode flaired = comment("""
+                { "author": "helper", "author_fullname": "t2_5", "body": "Link", "author_flair_text": "Bot" }
+                """);
+        JsonNode reply = comment("""
+                { "author": "mod", "author_fullname": "t2_4", "body": "I agree", "distinguished": null }
+                """);
+
+        assertEquals("bot_comment", filter.reject("mod", List.of(notice)));
+        assertEquals("bot_comment", filter.reject("helper", List.of(flaired)));
+        assertNull(filter.reject("mod", List.of(notice, reply)));
+    }
+
+    @Test
+    void testReject_keepsRegularCommenters() throws Exception {
+        JsonNode comment = comment("""
+                { "author": "someone", "author_fullname": "t2_6", "body": "Nice post", "author_flair_text": "Robotics" }
+                """);
+
+        assertNull(filter.reject("someone", List.of(comment)));
+    }
+}
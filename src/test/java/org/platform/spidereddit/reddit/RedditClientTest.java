@@ -1,7 +1,11 @@
 package org.platform.spidereddit.reddit;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +14,8 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -239,6 +245,86 @@ class RedditClientTest {
         assertTrue(result.contains("validuser"));
     }
 
+    @Test
+    void testComments_groupsRepliesByAuthorAndSkipsDeletedAccounts() throws Exception {
+        String json = """
+        [ {}, { "data": { "children": [
+            { "data": { "author": "[deleted]", "body": "[removed]" } },
+            { "data": { "author": "User1", "body": "first", "replies": { "data": { "children": [
+                { "data": { "author": "user1", "body": "reply" } },
+                { "data": { "author": "user2", "body": "other" } }
+            ] } } } }
+        ] } } ]
+    """;
+
+        Map<String, List<JsonNode>> comments = RedditClient.comments(objectMapper.readTree(json));
+
+        assertEquals(Set.of("user1", "user2"), comments.keySet());
+        assertEquals(2, comments.get("user1").size());
+        assertEquals("reply", comments.get("user1").get(1).path("body").asText());
+    }
+
+    @Test
+    void testExtractPostId_normalizesUrlsOfTheSamePost() {
+        assertEquals("abc123", RedditClient.extractPostId("https://www.reddit.com/r/test/comments/abc123/some_title/"));
+        assertEquals("abc123", RedditClient.extractPostId("https://old.reddit.com/r/test/comments/ABC123/?sort=new"));
+        assertEquals("abc123", RedditClient.extractPostId("https://reddit.com/comments/abc123#comments"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedditClient.extractPostId("https://www.reddit.com/r/test/"));
+    }
+
+    @Test
+    void testListingPath_parsesSubredditSortAndTimeRange() {
+        assertEquals("/r/java/top.json?t=week", RedditClient.listingPath("https://www.reddit.com/r/Java/top/?t=week"));
+        assertEquals("/r/java/hot.json", RedditClient.listingPath("https://www.reddit.com/r/java/"));
+        assertEquals("/r/java/new.json", RedditClient.listingPath("https://old.reddit.com/r/java/new?t=week"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedditClient.listingPath("https://www.reddit.com/r/java/top/?t=forever"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedditClient.listingPath("https://www.reddit.com/r/java/comments/abc123/title/"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedditClient.listingPath("https://www.reddit.com/user/someone/"));
+    }
+
+    @Test
+    void testGetPostIds_readsListingFromConfiguredBaseUrl() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("""
+                { "data": { "children": [ { "data": { "id": "AbC1" } }, { "data": { "id": "def2" } } ] } }
+            """));
+            server.start();
+
+            String baseUrl = server.url("/").toString().replaceAll("/$", "");
+            RedditClient localClient = new RedditClient(new OkHttpClient(), objectMapper, "mock-token", baseUrl);
+
+            List<String> result = localClient.getPostIds("/r/java/top.json?t=week", 10);
+            RecordedRequest recorded = server.takeRequest();
+
+            assertEquals(List.of("abc1", "def2"), result);
+            assertEquals("/r/java/top.json?t=week&limit=10", recorded.getPath());
+        }
+    }
+
+    @Test
+    void testGetAllCommenters_usesConfiguredBaseUrl() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("""
+                [ {}, { "data": { "children": [ { "data": { "author": "localuser" } } ] } } ]
+            """));
+            server.start();
+
+            String baseUrl = server.url("/").toString().replaceAll("/$", "");
+            RedditClient localClient = new RedditClient(new OkHttpClient(), objectMapper, "mock-token", baseUrl);
+
+            Set<String> result = localClient.getAllCommenters("abc123", "mock-token");
+            RecordedRequest recorded = server.takeRequest();
+
+            assertEquals(Set.of("localuser"), result);
+            assertEquals("/comments/abc123.json", recorded.getPath());
+            assertEquals("Bearer mock-token", recorded.getHeader("Authorization"));
+        }
+    }
+
 
 
 
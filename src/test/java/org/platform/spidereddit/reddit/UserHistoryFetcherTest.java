@@ -1,14 +1,27 @@
 package org.platform.spidereddit.reddit;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.platform.spidereddit.metrics.CrawlMetrics;
+import org.platform.spidereddit.metrics.CrawlTrace;
+import org.platform.spidereddit.text.NearDuplicateDetector;
 import org.platform.spidereddit.text.WordGraph;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -117,4 +130,97 @@ class UserHistoryFetcherTest {
             assertNotSame(fetcher1, fetcher2);
         });
     }
+
+    @Test
+    void testRunAsync_fetchesBothListingsFromConfiguredBaseUrl() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{ \"data\": { \"children\": [] } }"));
+            server.enqueue(new MockResponse().setBody("{ \"data\": { \"children\": [] } }"));
+            server.start();
+
+            String baseUrl = server.url("/").toString().replaceAll("/$", "");
+            UserHistoryFetcher fetcher = new UserHistoryFetcher(testUsername, mockWordGraph, testAccessToken,
+                    new OkHttpClient(), baseUrl, CrawlMetrics.noop(), CrawlTrace.NONE);
+            ExecutorService tagging = Executors.newSingleThreadExecutor();
+            try {
+                fetcher.runAsync(tagging).get(5, TimeUnit.SECONDS);
+            } finally {
+                tagging.shutdown();
+            }
+
+            Set<String> paths = Set.of(server.takeRequest().getPath(), server.takeRequest().getPath());
+            assertEquals(Set.of("/user/testuser/comments?limit=25", "/user/testuser/submitted?limit=25"), paths);
+        }
+    }
+
+    @Test
+    void testRunAsync_completesNormallyWhenRedditIsUnreachable() throws Exception {
+        UserHistoryFetcher fetcher = new UserHistoryFetcher(testUsername, mockWordGraph, testAccessToken,
+                new OkHttpClient(), "http://127.0.0.1:1", CrawlMetrics.noop(), CrawlTrace.NONE);
+
+        assertDoesNotThrow(() -> fetcher.runAsync(Runnable::run).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCommentedPostIds_stripsFullnamePrefixAndDeduplicates() throws Exception {
+        String listing = """
+                { "data": { "children": [
+                  { "data": { "body": "first", "link_id": "t3_AbC12" } },
+                  { "data": { "body": "second", "link_id": "t3_abc12" } },
+                  { "data": { "body": "third", "link_id": "t3_xyz9" } },
+                  { "data": { "body": "no link" } }
+                ] } }
+                """;
+
+        List<String> ids = UserHistoryFetcher.commentedPostIds(new ObjectMapper().readTree(listing));
+
+        assertEquals(List.of("abc12", "xyz9"), ids);
+    }
+
+    @Test
+    void testCommentWords_leavesOutNearDuplicatesOfEarlierComments() throws Exception {
+        String pasta = "What the heck did you just say about me, you little redditor? I graduated top of my class";
+        String listing = """
+                { "data": { "children": [
+                  { "data": { "body": "%s" } },
+                  { "data": { "body": "%s!!" } },
+                  { "data": { "body": "Graphs of words are neat" } }
+                ] } }
+                """.formatted(pasta, pasta.toUpperCase());
+        NearDuplicateDetector duplicates = new NearDuplicateDetector(0.8, 100, false);
+        List<NearDuplicateDetector.Duplicate> found = new ArrayList<>();
+
+        List<String> words = UserHistoryFetcher.commentWords(new ObjectMapper().readTree(listing), duplicates, found);
+
+        assertEquals(1, found.size());
+        assertEquals(1, words.stream().filter("redditor"::equals).count());
+        assertTrue(words.contains("graphs"));
+    }
+
+    @Test
+    void testRun_keepsTheWordsOfDuplicatesOnlyWhenAskedTo() throws Exception {
+        String pasta = "The quick brown fox jumps over the lazy dog while the farmer watches the sheep";
+
+        assertTrue(graphOfDuplicate(pasta, false).topNeighbors("fox", 10).isEmpty());
+        assertFalse(graphOfDuplicate(pasta, true).topNeighbors("fox", 10).isEmpty());
+    }
+
+    // Crawls a user whose only comment repeats one another user of the crawl posted first
+    private WordGraph graphOfDuplicate(String pasta, boolean keepWords) throws Exception {
+        NearDuplicateDetector duplicates = new NearDuplicateDetector(0.8, 100, keepWords);
+        assertNull(duplicates.check(pasta));
+        WordGraph wordGraph = new WordGraph();
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody(
+                    "{ \"data\": { \"children\": [ { \"data\": { \"body\": \"" + pasta + "\" } } ] } }"));
+            server.enqueue(new MockResponse().setBody("{ \"data\": { \"children\": [] } }"));
+            server.start();
+
+            String baseUrl = server.url("/").toString().replaceAll("/$", "");
+            new UserHistoryFetcher(testUsername, wordGraph, testAccessToken, new OkHttpClient(), baseUrl,
+                    CrawlMetrics.noop(), CrawlTrace.NONE, posts -> {
+            }, duplicates).run();
+        }
+        return wordGraph;
+    }
 }
@@ -0,0 +1,37 @@
+package org.platform.spidereddit.text;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssociationMeasureTest {
+
+    @Test
+    void testPmi_independentWordsScoreZero() {
+        // P(x, y) = 25/100, P(x) = P(y) = 100/200
+        assertEquals(0.0, AssociationMeasure.PMI.score(25, 100, 100, 100), 1e-9);
+    }
+
+    @Test
+    void testPmi_exclusivePairScoresPositive() {
+        assertTrue(AssociationMeasure.PMI.score(10, 10, 10, 100) > 0);
+    }
+
+    @Test
+    void testNpmi_boundedByOne() {
+        double npmi = AssociationMeasure.NPMI.score(10, 30, 30, 1000);
+
+        assertTrue(npmi > 0 && npmi < 1.0);
+    }
+
+    @Test
+    void testNpmi_singlePairGraph() {
+        assertEquals(1.0, AssociationMeasure.NPMI.score(5, 5, 5, 5), 1e-9);
+    }
+
+    @Test
+    void testJaccard() {
+        assertEquals(1.0, AssociationMeasure.JACCARD.score(4, 4, 4, 100), 1e-9);
+        assertEquals(0.25, AssociationMeasure.JACCARD.score(2, 4, 6, 100), 1e-9);
+    }
+}
@@ -0,0 +1,125 @@
+package org.platform.spidereddit.text;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.model.CommunityNode;
+import org.platform.spidereddit.model.GraphEdge;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommunityDetectorTest {
+
+    private WordGraph wordGraph;
+    private CommunityDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        wordGraph = new WordGraph();
+        detector = new CommunityDetector(new ForkJoinPool(4));
+    }
+
+    @Test
+    void testDetect_separatesTwoCliques() {
+        recordClique("cat", "dog", "fish", "bird");
+        recordClique("java", "python", "rust", "go");
+        // A weak bridge between the topics
+        wordGraph.recordCoOccurrences(new String[]{"bird", "java"});
+
+        Map<String, Integer> communities = communitiesOf(detector.exportCommunities(wordGraph.snapshot(), 1));
+
+        assertEquals(communities.get("cat"), communities.get("dog"));
+        assertEquals(communities.get("cat"), communities.get("bird"));
+        assertEquals(communities.get("java"), communities.get("rust"));
+        assertNotEquals(communities.get("cat"), communities.get("java"));
+    }
+
+    @Test
+    void testExportCommunities_respectsMinWeight() {
+        recordClique("cat", "dog", "fish");
+        wordGraph.recordCoOccurrences(new String[]{"lonely", "pair"});
+
+        Map<String, Object> export = detector.exportCommunities(wordGraph.snapshot(), 2);
+
+        assertEquals(3, ((List<?>) export.get("nodes")).size());
+        assertEquals(3, ((List<?>) export.get("edges")).size());
+        assertEquals(1, export.get("communities"));
+    }
+
+    @Test
+    void testExportCommunities_edgesMatchThresholdExport() {
+        recordClique("a", "b", "c", "d");
+        recordClique("c", "d", "e");
+
+        @SuppressWarnings("unchecked")
+        List<GraphEdge> expected = (List<GraphEdge>) wordGraph.exportData(1).get("edges");
+        @SuppressWarnings("unchecked")
+        List<GraphEdge> actual = (List<GraphEdge>) detector.exportCommunities(wordGraph.snapshot(), 1).get("edges");
+
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
+
+    @Test
+    void testDetect_largestCommunityIsZero() {
+        recordClique("a", "b", "c", "d", "e");
+        recordClique("x", "y");
+
+        Map<String, Integer> communities = communitiesOf(detector.exportCommunities(wordGraph.snapshot(), 1));
+
+        assertEquals(0, communities.get("a"));
+        assertEquals(1, communities.get("x"));
+    }
+
+    @Test
+    void testDetect_emptyGraph() {
+        Map<String, Object> export = detector.exportCommunities(wordGraph.snapshot(), 1);
+
+        assertTrue(((List<?>) export.get("nodes")).isEmpty());
+        assertEquals(0, export.get("communities"));
+    }
+
+    @Test
+    void testDetect_largeGraphInParallel() {
+        // 200 planted topics of 50 words, densely connected inside and sparsely across
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < 20000; i++) {
+            int topic = random.nextInt(200);
+            String[] words = new String[4];
+            for (int j = 0; j < words.length; j++) {
+                words[j] = "t" + topic + "w" + random.nextInt(50);
+            }
+            wordGraph.recordCoOccurrences(words);
+            wordGraph.recordCoOccurrences(new String[]{words[0], "t" + random.nextInt(200) + "w" + random.nextInt(50)});
+        }
+
+        Map<String, Integer> communities = communitiesOf(detector.exportCommunities(wordGraph.snapshot(), 1));
+
+        int sameTopicAgreement = 0;
+        for (int topic = 0; topic < 200; topic++) {
+            if (communities.get("t" + topic + "w0").equals(communities.get("t" + topic + "w1"))) {
+                sameTopicAgreement++;
+            }
+        }
+        assertTrue(sameTopicAgreement > 180, "only " + sameTopicAgreement + " topics recovered");
+    }
+
+    private void recordClique(String... words) {
+        for (int i = 0; i < 3; i++) {
+            wordGraph.recordCoOccurrences(words);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> communitiesOf(Map<String, Object> export) {
+        Map<String, Integer> communities = new HashMap<>();
+        for (CommunityNode node : (List<CommunityNode>) export.get("nodes")) {
+            communities.put(node.getId(), node.getCommunity());
+        }
+        return communities;
+    }
+}
@@ -0,0 +1,56 @@
+package org.platform.spidereddit.text;
+
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.GraphNode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphDeltaBufferTest {
+
+    private final GraphDeltaBuffer buffer = new GraphDeltaBuffer();
+
+    @Test
+    void testDrain_returnsNullWhenNothingCrossed() {
+        assertNull(buffer.drain());
+    }
+
+    @Test
+    void testDrain_sendsEachNewWordOnce() {
+        buffer.edgeCrossed("learning", "machine", 3);
+        buffer.edgeCrossed("deep", "learning", 3);
+
+        Map<String, Object> delta = buffer.drain();
+
+        assertEquals(List.of(new GraphNode("learning"), new GraphNode("machine"), new GraphNode("deep")),
+                delta.get("nodes"));
+        assertEquals(2, ((List<?>) delta.get("edges")).size());
+        assertNull(buffer.drain());
+    }
+
+    @Test
+    void testSeed_skipsWordsTheClientHas() {
+        buffer.seed(Map.of("nodes", Set.of(new GraphNode("learning")), "edges", List.of()));
+
+        buffer.edgeCrossed("learning", "machine", 3);
+        Map<String, Object> delta = buffer.drain();
+
+        assertEquals(List.of(new GraphNode("machine")), delta.get("nodes"));
+        assertEquals(List.of(new GraphEdge("learning", "machine", 3)), delta.get("edges"));
+    }
+
+    @Test
+    void testDrain_laterWindowsOnlyCarryNewWords() {
+        buffer.edgeCrossed("learning", "machine", 3);
+        buffer.drain();
+
+        buffer.edgeCrossed("machine", "vision", 3);
+        Map<String, Object> delta = buffer.drain();
+
+        assertEquals(List.of(new GraphNode("vision")), delta.get("nodes"));
+    }
+}
@@ -0,0 +1,251 @@
+package org.platform.spidereddit.text;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.model.CompactGraph;
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.GraphNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphSnapshotTest {
+
+    private WordGraph wordGraph;
+
+    @BeforeEach
+    void setUp() {
+        wordGraph = new WordGraph();
+    }
+
+    @Test
+    void testSnapshot_emptyGraph() {
+        GraphSnapshot snapshot = wordGraph.snapshot();
+
+        assertEquals(0, snapshot.nodeCount());
+        assertEquals(0, snapshot.edgeCount());
+        assertTrue(((List<?>) snapshot.exportData(1).get("edges")).isEmpty());
+    }
+
+    @Test
+    void testSnapshot_unchangedGraphReusesPublishedSnapshot() {
+        wordGraph.recordCoOccurrences(new String[]{"hello", "world"});
+
+        GraphSnapshot first = wordGraph.snapshot();
+
+        assertSame(first, wordGraph.snapshot());
+        assertSame(first, wordGraph.latestSnapshot());
+        assertEquals(wordGraph.version(), first.version());
+    }
+
+    @Test
+    void testLatestSnapshot_lagsUntilRefreshed() {
+        wordGraph.recordCoOccurrences(new String[]{"hello", "world"});
+        GraphSnapshot first = wordGraph.snapshot();
+
+        wordGraph.recordCoOccurrences(new String[]{"hello", "there"});
+
+        assertSame(first, wordGraph.latestSnapshot());
+        assertEquals(1, first.topNeighbors("hello", 10).size());
+        assertEquals(2, wordGraph.snapshot().topNeighbors("hello", 10).size());
+    }
+
+    @Test
+    void testSnapshot_isImmutable() {
+        wordGraph.recordCoOccurrences(new String[]{"cat", "dog"});
+        GraphSnapshot snapshot = wordGraph.snapshot();
+
+        wordGraph.recordCoOccurrences(new String[]{"cat", "dog"});
+
+        assertEquals(List.of(new GraphEdge("cat", "dog", 1)), snapshot.topNeighbors("cat", 1));
+    }
+
+    @Test
+    void testIncrementalSnapshot_matchesFullRebuild() {
+        WordGraph reference = new WordGraph();
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                String[] words = new String[5];
+                for (int j = 0; j < words.length; j++) {
+                    words[j] = "w" + random.nextInt(round * 10 + 10);
+                }
+                wordGraph.recordCoOccurrences(words);
+                reference.recordCoOccurrences(words);
+            }
+            // Refresh incrementally after every round; the reference is only built once
+            wordGraph.snapshot();
+        }
+
+        assertEquals(edgesOf(reference.snapshot()), edgesOf(wordGraph.snapshot()));
+        assertEquals(reference.snapshot().topNeighbors("w1", 5), wordGraph.snapshot().topNeighbors("w1", 5));
+    }
+
+    @Test
+    void testSnapshot_whileWritersRun() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            writers.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 2000; i++) {
+                    wordGraph.recordCoOccurrences(new String[]{"w" + random.nextInt(300), "w" + random.nextInt(300)});
+                }
+            });
+        }
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        Future<?> reads = reader.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                GraphSnapshot snapshot = wordGraph.snapshot();
+                snapshot.exportData(1);
+                snapshot.exportBackbone(0.05, 1);
+            }
+        });
+
+        writers.shutdown();
+        assertTrue(writers.awaitTermination(10, TimeUnit.SECONDS));
+        reads.get(10, TimeUnit.SECONDS);
+        reader.shutdown();
+
+        long total = 0;
+        for (GraphEdge edge : edgesOf(wordGraph.snapshot())) {
+            total += edge.getWeight();
+        }
+        assertEquals(8000 - countSelfPairs(), total);
+    }
+
+    @Test
+    void testBuild_rereadsRowsBuiltBeforeTheirNeighborExisted() {
+        // A build between the two increments of recordCoOccurrences: "ant" counts "bee" before "bee" has an entry
+        Map<String, NeighborList> adjacency = new HashMap<>();
+        NeighborList ant = new NeighborList("ant", 0);
+        adjacency.put("ant", ant);
+        ant.increment("bee");
+        GraphSnapshot first = GraphSnapshot.build(adjacency, 1, GraphSnapshot.EMPTY, 1, 1);
+
+        NeighborList bee = new NeighborList("bee", 1);
+        adjacency.put("bee", bee);
+        bee.increment("ant");
+        GraphSnapshot second = GraphSnapshot.build(adjacency, 2, first, 2, 1);
+
+        assertTrue(first.topNeighbors("ant", 10).isEmpty());
+        assertEquals(List.of(new GraphEdge("ant", "bee", 1)), second.topNeighbors("ant", 10));
+        assertEquals(List.of(new GraphEdge("ant", "bee", 1)), second.exportData(1).get("edges"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCompactExports_matchVerboseExports() {
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"w" + random.nextInt(40), "w" + random.nextInt(40),
+                    "w" + random.nextInt(40)});
+        }
+        GraphSnapshot snapshot = wordGraph.snapshot();
+
+        assertEquals(new HashSet<>((List<GraphEdge>) snapshot.exportData(3).get("edges")),
+                edgesOf(snapshot.exportCompactData(3)));
+        assertEquals(new HashSet<>((List<GraphEdge>) snapshot.exportTopNodes(10, 2).get("edges")),
+                edgesOf(snapshot.exportCompactTopNodes(10, 2)));
+        assertEquals(new HashSet<>((List<GraphEdge>) snapshot.exportBackbone(0.3, 1).get("edges")),
+                edgesOf(snapshot.exportCompactBackbone(0.3, 1)));
+    }
+
+    @Test
+    void testCompactExport_sendsEachWordOnce() {
+        wordGraph.recordCoOccurrences(new String[]{"cat", "dog", "fish"});
+        CompactGraph compact = wordGraph.snapshot().exportCompactData(1);
+
+        assertEquals(3, compact.getNodes().length);
+        assertEquals(3, new HashSet<>(Arrays.asList(compact.getNodes())).size());
+        assertEquals(3, compact.getSources().length);
+        assertArrayEquals(new int[]{1, 1, 1}, compact.getWeights());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportEgo_stopsAfterHops() {
+        record(3, "a", "b");
+        record(3, "b", "c");
+        record(3, "c", "d");
+        record(3, "a", "c");
+
+        Map<String, Object> ego = wordGraph.snapshot().exportEgo("a", 1, 10, 1);
+
+        assertEquals(List.of(new GraphNode("a"), new GraphNode("b"), new GraphNode("c")), ego.get("nodes"));
+        // Edges among the found words are kept, b-c included
+        assertEquals(Set.of(new GraphEdge("a", "b", 3), new GraphEdge("b", "c", 3), new GraphEdge("a", "c", 3)),
+                new HashSet<>((List<GraphEdge>) ego.get("edges")));
+        assertEquals(4, ((List<?>) wordGraph.snapshot().exportEgo("a", 2, 10, 1).get("nodes")).size());
+    }
+
+    @Test
+    void testExportEgo_admitsTheHeaviestNeighborsFirst() {
+        record(1, "hub", "light");
+        record(5, "hub", "heavy");
+        record(3, "hub", "middle");
+        record(9, "heavy", "far");
+
+        Map<String, Object> ego = wordGraph.snapshot().exportEgo("hub", 2, 3, 1);
+
+        // The first hop is filled before the second one starts
+        assertEquals(List.of(new GraphNode("hub"), new GraphNode("heavy"), new GraphNode("middle")), ego.get("nodes"));
+    }
+
+    @Test
+    void testExportEgo_skipsLightEdgesAndUnknownWords() {
+        record(1, "cat", "dog");
+        record(3, "cat", "fish");
+        GraphSnapshot snapshot = wordGraph.snapshot();
+
+        assertEquals(List.of(new GraphNode("cat"), new GraphNode("fish")),
+                snapshot.exportEgo("cat", 2, 10, 2).get("nodes"));
+        assertTrue(((List<?>) snapshot.exportEgo("bird", 2, 10, 1).get("nodes")).isEmpty());
+    }
+
+    private void record(int times, String first, String second) {
+        for (int i = 0; i < times; i++) {
+            wordGraph.recordCoOccurrences(new String[]{first, second});
+        }
+    }
+
+    // Pairs of a word with itself are not recorded
+    private long countSelfPairs() {
+        long selfPairs = 0;
+        for (int seed = 0; seed < 4; seed++) {
+            Random random = new Random(seed);
+            for (int i = 0; i < 2000; i++) {
+                if (random.nextInt(300) == random.nextInt(300)) {
+                    selfPairs++;
+                }
+            }
+        }
+        return selfPairs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<GraphEdge> edgesOf(GraphSnapshot snapshot) {
+        return new HashSet<>((List<GraphEdge>) snapshot.exportData(1).get("edges"));
+    }
+
+    private Set<GraphEdge> edgesOf(CompactGraph compact) {
+        Set<GraphEdge> edges = new HashSet<>();
+        for (int i = 0; i < compact.getSources().length; i++) {
+            edges.add(new GraphEdge(compact.getNodes()[compact.getSources()[i]],
+                    compact.getNodes()[compact.getTargets()[i]], compact.getWeights()[i]));
+        }
+        return edges;
+    }
+}
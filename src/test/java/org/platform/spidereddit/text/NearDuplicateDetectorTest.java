@@ -0,0 +1,90 @@
+package org.platform.spidereddit.text;
+
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.text.NearDuplicateDetector.Duplicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearDuplicateDetectorTest {
+
+    private static final String PASTA = "I'd just like to interject for a moment. What you're referring to as Linux "
+            + "is in fact GNU/Linux, or as I've recently taken to calling it, GNU plus Linux.";
+
+    private final NearDuplicateDetector detector = new NearDuplicateDetector(0.8, 1000, true);
+
+    @Test
+    void testCheck_findsExactAndNearCopies() {
+        assertNull(detector.check(PASTA));
+
+        assertNotNull(detector.check(PASTA));
+        assertNotNull(detector.check(PASTA.toLowerCase().replace("moment.", "moment!!")));
+        assertNotNull(detector.check(PASTA + " Thanks"));
+        assertEquals(1, detector.size());
+    }
+
+    @Test
+    void testCheck_tellsDifferentCommentsApart() {
+        assertNull(detector.check(PASTA));
+        assertNull(detector.check("What you are referring to as a graph is in fact a list of words, "
+                + "or as I have come to call it, a word salad with edges."));
+        assertNull(detector.check("The quick brown fox jumps over the lazy dog near the river bank today."));
+
+        assertEquals(3, detector.size());
+    }
+
+    @Test
+    void testCheck_ignoresShortComments() {
+        assertNull(detector.check("this is so true lol"));
+        assertNull(detector.check("this is so true lol"));
+
+        assertEquals(0, detector.size());
+    }
+
+    @Test
+    void testCheck_stopsRememberingAtTheLimit() {
+        NearDuplicateDetector small = new NearDuplicateDetector(0.8, 1, false);
+        String other = "A completely different comment about graphs, words and how they co-occur in threads.";
+        small.check(PASTA);
+        small.check(other);
+
+        assertNotNull(small.check(PASTA));
+        assertNull(small.check(other));
+        assertNull(NearDuplicateDetector.NONE.check(PASTA));
+        assertNull(NearDuplicateDetector.NONE.check(PASTA));
+    }
+
+    @Test
+    void testWords_filtersEachClusterOnce() {
+        AtomicInteger filtered = new AtomicInteger();
+        detector.check(PASTA);
+        Duplicate first = detector.check(PASTA);
+        Duplicate second = detector.check(PASTA + " Thanks");
+
+        List<String> words = detector.words(first, body -> {
+            filtered.incrementAndGet();
+            return List.of("linux", "gnu");
+        });
+
+        assertEquals(words, detector.words(second, body -> new ArrayList<>()));
+        assertEquals(first.cluster(), second.cluster());
+        assertEquals(1, filtered.get());
+    }
+
+    @Test
+    void testSimilarity_estimatesJaccardOfShingles() {
+        // 21 shingles each, 14 shared: Jaccard 14 / 28 = 0.5
+        String a = "one two three four five six seven eight nine ten eleven twelve thirteen fourteen fifteen "
+                + "sixteen seventeen eighteen nineteen twenty twentyone twentytwo twentythree";
+        String b = "one two three four five six seven eight nine ten eleven twelve thirteen fourteen fifteen "
+                + "sixteen alpha beta gamma delta epsilon zeta eta";
+
+        double similarity = NearDuplicateDetector.similarity(NearDuplicateDetector.signature(a),
+                NearDuplicateDetector.signature(b));
+
+        assertEquals(0.5, similarity, 0.2);
+    }
+}
@@ -0,0 +1,69 @@
+package org.platform.spidereddit.text;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.platform.spidereddit.model.GraphEdge;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeighborListTest {
+
+    private NeighborList neighborList;
+
+    @BeforeEach
+    void setUp() {
+        neighborList = new NeighborList("x", 0);
+    }
+
+    @Test
+    void testIncrement_newNeighborsAppended() {
+        neighborList.increment("a");
+        neighborList.increment("b");
+
+        List<GraphEdge> top = neighborList.top(5);
+        assertEquals(2, top.size());
+        assertEquals(1, top.get(0).getWeight());
+        assertEquals(1, top.get(1).getWeight());
+    }
+
+    @Test
+    void testIncrement_promotesPastEqualWeights() {
+        neighborList.increment("a");
+        neighborList.increment("b");
+        neighborList.increment("c");
+        neighborList.increment("c");
+
+        assertEquals(new GraphEdge("x", "c", 2), neighborList.top(1).get(0));
+    }
+
+    @Test
+    void testTop_emptyList() {
+        assertTrue(neighborList.top(3).isEmpty());
+    }
+
+    @Test
+    void testRandomIncrements_orderAndWeightsPreserved() {
+        Random random = new Random(42);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String word = "w" + random.nextInt(200);
+            neighborList.increment(word);
+            expected.merge(word, 1, Integer::sum);
+        }
+
+        List<GraphEdge> all = neighborList.top(Integer.MAX_VALUE);
+        assertEquals(expected.size(), all.size());
+        for (int i = 0; i < all.size(); i++) {
+            GraphEdge edge = all.get(i);
+            assertEquals(expected.get(edge.getTarget()), edge.getWeight());
+            if (i > 0) {
+                assertTrue(all.get(i - 1).getWeight() >= edge.getWeight());
+            }
+        }
+    }
+}
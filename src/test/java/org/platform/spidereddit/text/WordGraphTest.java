@@ -5,10 +5,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.platform.spidereddit.model.GraphEdge;
+import org.platform.spidereddit.model.ScoredEdge;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -133,6 +141,249 @@ class WordGraphTest {
         });
     }
 
+    @Test
+    void testTopNeighbors_sortedByDescendingWeight() {
+        wordGraph.recordCoOccurrences(new String[]{"cat", "dog"});
+        wordGraph.recordCoOccurrences(new String[]{"cat", "dog"});
+        wordGraph.recordCoOccurrences(new String[]{"cat", "dog"});
+        wordGraph.recordCoOccurrences(new String[]{"cat", "fish"});
+        wordGraph.recordCoOccurrences(new String[]{"cat", "fish"});
+        wordGraph.recordCoOccurrences(new String[]{"cat", "bird"});
+
+        List<GraphEdge> neighbors = wordGraph.topNeighbors("cat", 10);
+
+        assertEquals(3, neighbors.size());
+        assertEquals(new GraphEdge("cat", "dog", 3), neighbors.get(0));
+        assertEquals(new GraphEdge("cat", "fish", 2), neighbors.get(1));
+        assertEquals(new GraphEdge("cat", "bird", 1), neighbors.get(2));
+    }
+
+    @Test
+    void testTopNeighbors_symmetric() {
+        // "apple" < "banana", so the edge is stored under "apple" only
+        wordGraph.recordCoOccurrences(new String[]{"banana", "apple"});
+
+        assertEquals(List.of(new GraphEdge("apple", "banana", 1)), wordGraph.topNeighbors("apple", 5));
+        assertEquals(List.of(new GraphEdge("banana", "apple", 1)), wordGraph.topNeighbors("banana", 5));
+    }
+
+    @Test
+    void testTopNeighbors_limitedToK() {
+        String[] words = {"hub", "a", "hub", "b", "hub", "c", "hub", "d"};
+        wordGraph.recordCoOccurrences(words);
+
+        assertEquals(2, wordGraph.topNeighbors("hub", 2).size());
+        assertTrue(wordGraph.topNeighbors("hub", 0).isEmpty());
+    }
+
+    @Test
+    void testTopNeighbors_unknownWord() {
+        wordGraph.recordCoOccurrences(new String[]{"hello", "world"});
+
+        assertTrue(wordGraph.topNeighbors("missing", 5).isEmpty());
+    }
+
+    @Test
+    void testTopNeighbors_matchesExportWeights() {
+        wordGraph.recordCoOccurrences(new String[]{"red", "green", "blue", "red", "green"});
+        wordGraph.recordCoOccurrences(new String[]{"green", "blue", "yellow"});
+
+        @SuppressWarnings("unchecked")
+        List<GraphEdge> edges = (List<GraphEdge>) wordGraph.exportData(1).get("edges");
+        for (GraphEdge edge : edges) {
+            assertTrue(wordGraph.topNeighbors(edge.getSource(), 10).stream()
+                    .anyMatch(n -> n.getTarget().equals(edge.getTarget()) && n.getWeight() == edge.getWeight()));
+            assertTrue(wordGraph.topNeighbors(edge.getTarget(), 10).stream()
+                    .anyMatch(n -> n.getTarget().equals(edge.getSource()) && n.getWeight() == edge.getWeight()));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportData_thresholdFiltersEdges() {
+        for (int i = 0; i < 5; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"alpha", "beta"});
+        }
+        for (int i = 0; i < 2; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"alpha", "gamma"});
+        }
+        wordGraph.recordCoOccurrences(new String[]{"delta", "epsilon"});
+
+        assertEquals(3, ((List<GraphEdge>) wordGraph.exportData(1).get("edges")).size());
+        assertEquals(2, ((List<GraphEdge>) wordGraph.exportData(2).get("edges")).size());
+        assertEquals(List.of(new GraphEdge("alpha", "beta", 5)), wordGraph.exportData(3).get("edges"));
+        assertEquals(List.of(new GraphEdge("alpha", "beta", 5)), wordGraph.exportData(5).get("edges"));
+        assertTrue(((List<GraphEdge>) wordGraph.exportData(6).get("edges")).isEmpty());
+        assertEquals(2, ((Set<?>) wordGraph.exportData(4).get("nodes")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportData_bucketedMatchesFullScan() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            String[] words = new String[6];
+            for (int j = 0; j < words.length; j++) {
+                words[j] = "w" + random.nextInt(25);
+            }
+            wordGraph.recordCoOccurrences(words);
+        }
+
+        List<GraphEdge> all = (List<GraphEdge>) wordGraph.exportData(1).get("edges");
+        for (int minWeight = 2; minWeight <= 40; minWeight++) {
+            Map<String, Integer> expected = new HashMap<>();
+            for (GraphEdge edge : all) {
+                if (edge.getWeight() >= minWeight) {
+                    expected.put(edge.getSource() + "|" + edge.getTarget(), edge.getWeight());
+                }
+            }
+
+            Map<String, Integer> actual = new HashMap<>();
+            for (GraphEdge edge : (List<GraphEdge>) wordGraph.exportData(minWeight).get("edges")) {
+                assertNull(actual.put(edge.getSource() + "|" + edge.getTarget(), edge.getWeight()));
+            }
+            assertEquals(expected, actual, "minWeight " + minWeight);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportTopNodes_keepsStrongestWords() {
+        for (int i = 0; i < 4; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"hub", "spoke1", "hub", "spoke2", "hub", "spoke3"});
+        }
+        wordGraph.recordCoOccurrences(new String[]{"lonely", "pair"});
+
+        Map<String, Object> export = wordGraph.exportTopNodes(2, 1);
+        Set<?> nodes = (Set<?>) export.get("nodes");
+        List<GraphEdge> edges = (List<GraphEdge>) export.get("edges");
+
+        assertEquals(2, nodes.size());
+        assertEquals(1, edges.size());
+        assertEquals("hub", edges.get(0).getSource());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportBackbone_keepsDominantEdges() {
+        // "core" spends nearly all of its strength on "partner"; the other edges are noise
+        for (int i = 0; i < 50; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"core", "partner"});
+        }
+        for (int i = 0; i < 5; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"core", "noise" + i});
+            wordGraph.recordCoOccurrences(new String[]{"noise" + i, "other" + i});
+        }
+
+        List<GraphEdge> edges = (List<GraphEdge>) wordGraph.exportBackbone(0.05, 1).get("edges");
+
+        assertTrue(edges.contains(new GraphEdge("core", "partner", 50)));
+        assertTrue(edges.stream().noneMatch(e -> e.getSource().equals("core") && e.getTarget().startsWith("noise")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPruning_shrinksCommittedGraphByAnOrderOfMagnitude() throws IOException {
+        JsonNode fixture = objectMapper.readTree(Files.readString(Path.of("wordgraph.json")));
+        for (JsonNode edge : fixture.get("edges")) {
+            String[] pair = {edge.get("source").asText(), edge.get("target").asText()};
+            for (int i = 0; i < edge.get("weight").asInt(); i++) {
+                wordGraph.recordCoOccurrences(pair);
+            }
+        }
+
+        int fullEdges = ((List<GraphEdge>) wordGraph.exportData(3).get("edges")).size();
+        int fullBytes = objectMapper.writeValueAsBytes(wordGraph.exportData(3)).length;
+        int topBytes = objectMapper.writeValueAsBytes(wordGraph.exportTopNodes(50, 3)).length;
+        int backboneBytes = objectMapper.writeValueAsBytes(wordGraph.exportBackbone(0.05, 3)).length;
+
+        assertEquals(fixture.get("edges").size(), fullEdges);
+        assertTrue(topBytes * 10 <= fullBytes, "top-50 export is " + topBytes + " of " + fullBytes + " bytes");
+        assertTrue(backboneBytes * 10 <= fullBytes, "backbone export is " + backboneBytes + " of " + fullBytes + " bytes");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportAssociations_penalizesFrequentWords() {
+        // "people" co-occurs with everything, "machine"/"learning" only with each other
+        for (int i = 0; i < 10; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"machine", "learning"});
+            wordGraph.recordCoOccurrences(new String[]{"people", "topic" + i});
+            wordGraph.recordCoOccurrences(new String[]{"people", "machine"});
+        }
+
+        List<ScoredEdge> edges = (List<ScoredEdge>) wordGraph
+                .exportAssociations(AssociationMeasure.NPMI, 1, Double.NEGATIVE_INFINITY).get("edges");
+        double exclusive = scoreOf(edges, "learning", "machine");
+        double frequent = scoreOf(edges, "machine", "people");
+
+        assertEquals(12, edges.size());
+        assertTrue(exclusive > frequent, exclusive + " <= " + frequent);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportAssociations_minScoreFilters() {
+        for (int i = 0; i < 10; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"machine", "learning"});
+            wordGraph.recordCoOccurrences(new String[]{"people", "topic" + i});
+        }
+
+        Map<String, Object> export = wordGraph.exportAssociations(AssociationMeasure.JACCARD, 1, 0.5);
+        List<ScoredEdge> edges = (List<ScoredEdge>) export.get("edges");
+
+        assertEquals(1, edges.size());
+        assertEquals(1.0, edges.get(0).getScore(), 1e-9);
+        assertEquals(2, ((Set<?>) export.get("nodes")).size());
+    }
+
+    @Test
+    void testAddListener_reportsEachEdgeOnceWhenItReachesThreshold() {
+        List<GraphEdge> crossed = new ArrayList<>();
+        wordGraph.addListener(3, (source, target, weight) -> crossed.add(new GraphEdge(source, target, weight)));
+
+        for (int i = 0; i < 5; i++) {
+            wordGraph.recordCoOccurrences(new String[]{"machine", "learning"});
+        }
+        wordGraph.recordCoOccurrences(new String[]{"deep", "learning"});
+
+        assertEquals(List.of(new GraphEdge("learning", "machine", 3)), crossed);
+    }
+
+    @Test
+    void testAddListener_reportsTheSmallerWordFirstWhateverTheTextOrder() {
+        List<GraphEdge> crossed = new ArrayList<>();
+        wordGraph.addListener(3, (source, target, weight) -> crossed.add(new GraphEdge(source, target, weight)));
+
+        wordGraph.recordCoOccurrences(new String[]{"machine", "learning"});
+        wordGraph.recordCoOccurrences(new String[]{"learning", "machine"});
+        wordGraph.recordCoOccurrences(new String[]{"machine", "learning"});
+        wordGraph.recordCoOccurrences(new String[]{"learning", "machine"});
+
+        assertEquals(List.of(new GraphEdge("learning", "machine", 3)), crossed);
+    }
+
+    @Test
+    void testRemoveListener_stopsNotifications() {
+        List<String> crossed = new ArrayList<>();
+        EdgeListener listener = (source, target, weight) -> crossed.add(source);
+        wordGraph.addListener(1, listener);
+        wordGraph.recordCoOccurrences(new String[]{"machine", "learning"});
+
+        wordGraph.removeListener(listener);
+        wordGraph.recordCoOccurrences(new String[]{"deep", "learning"});
+
+        assertEquals(List.of("learning"), crossed);
+    }
+
+    private double scoreOf(List<ScoredEdge> edges, String source, String target) {
+        return edges.stream()
+                .filter(e -> e.getSource().equals(source) && e.getTarget().equals(target))
+                .findFirst()
+                .orElseThrow()
+                .getScore();
+    }
+
     @Test
     void testSpecialCharactersInWords() {
         String[] words = {"hello-world", "test_case", "special.word"};